@@ -0,0 +1,107 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package be.uclouvain.mlg.jForest.data;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * Column oriented representation of a data matrix with class labels.
+ * The values of a variable, scanned by the splitters, are contiguous in memory:
+ * they are either one array per variable, or a range of one array holding the whole matrix in column-major order
+ * (the layout of an R matrix), which is used as is.
+ */
+public class ColumnData extends Data {
+
+	private final double[][] colArrays; // colArrays[j] holds the values of variable j, from colOffsets[j]
+	private final int[] colOffsets;
+
+	/**
+	 * Creates a ColumnData object
+	 * @param cols     the <code>p</code> columns of the data matrix, each containing the values of one variable for the <code>n</code> samples.
+	 *                 The levels of categorical variables should be encoded as numeric (per dimension).
+	 * @param labels   the <code>n</code> class labels encoded as integers from 0 to <i>number of classes</i> - 1
+	 * @param isCat    a boolean vector of size <code>p</code> indicating for each variable if it is categorical (<code>true</code>) or continuous (<code>false</code>).
+	 */
+	public ColumnData(double[][] cols, int[] labels, boolean[] isCat){
+		super(labels.length, cols.length, labels, isCat);
+		this.colArrays = cols;
+		this.colOffsets = new int[cols.length];
+		for(double[] c : cols){
+			if(c.length != labels.length) throw new RuntimeException("The size of a column is different from the size of the label vector.");
+		}
+		computeCatLevels();
+	}
+
+	/**
+	 * Creates a ColumnData object from a matrix stored in column-major order (the layout of an R matrix),
+	 * so that it can be transferred in one array instead of one array per sample.
+	 * The array is not copied: the columns are read in place.
+	 * @param values   the <code>n*p</code> values: <code>values[j*n + i]</code> is the value of the <i>j</i>-th variable of the <i>i</i>-th sample.
+	 *                 The levels of categorical variables should be encoded as numeric (per dimension).
+	 * @param n        the number of samples
+	 * @param p        the number of variables
+	 * @param labels   the <code>n</code> class labels encoded as integers from 0 to <i>number of classes</i> - 1
+	 * @param isCat    a boolean vector of size <code>p</code> indicating for each variable if it is categorical (<code>true</code>) or continuous (<code>false</code>).
+	 */
+	public ColumnData(double[] values, int n, int p, int[] labels, boolean[] isCat){
+		super(n, p, labels, isCat);
+		if(values.length != (long) n * p) throw new RuntimeException("The number of values is different from "+n+" x "+p+".");
+		if(labels.length != n) throw new RuntimeException("The size of the label vector is different from "+n+".");
+		this.colArrays = new double[p][];
+		this.colOffsets = new int[p];
+		for(int j = 0; j < p; j++){
+			colArrays[j] = values;
+			colOffsets[j] = j * n;
+		}
+		computeCatLevels();
+	}
+
+	/**
+	 * The returned buffer is read only.
+	 * @param feat the index of a variable
+	 * @return the values of variable <code>feat</code> for the <i>n</i> samples
+	 */
+	public DoubleBuffer getColumn(int feat){
+		return DoubleBuffer.wrap(colArrays[feat], colOffsets[feat], getN()).slice().asReadOnlyBuffer();
+	}
+
+	@Override
+	public double getValue(int sample, int feat){
+		return colArrays[feat][colOffsets[feat] + sample];
+	}
+
+	@Override
+	public double[] getRow(int sample){
+		double[] res = new double[colArrays.length];
+		for(int j = 0; j < res.length; j++) res[j] = colArrays[j][colOffsets[j] + sample];
+		return res;
+	}
+}
@@ -31,8 +31,11 @@ package be.uclouvain.mlg.jForest.data;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Non sparse representation of a data matrix with class labels.
@@ -50,6 +53,12 @@ public class Data {
 	private int[] colRange;
 	
 	private double[][] catLevels;
+	private LevelDictionary[] catDictionaries;
+	private int[][] catCodes;
+	
+	private boolean cacheRanks = true;
+	private AtomicReferenceArray<int[]> ranks; // published by computeRanks to the threads growing trees
+	private AtomicReferenceArray<double[]> sortedValues;
 	
 	/**
 	 * Creates a Data object
@@ -60,11 +69,26 @@ public class Data {
 	 * @param isCat    a boolean vector of size <code>p</code> indicating for each variable if it is categorical (<code>true</code>) or continuous (<code>false</code>).
 	 */
 	public Data(double[][] d,int[] labels, boolean[] isCat){
+		this(d.length, d[0].length, labels, isCat);
 		this.d = d;
+		computeCatLevels();
+	}
+	
+	/**
+	 * Initializes the labels and dimensions of a data set whose values are not stored as a row matrix.
+	 * Extending classes provide the values by overriding <code>getValue(int sample, int feat)</code> and <code>getRow(int sample)</code>,
+	 * and either call <code>computeCatLevels()</code> once their storage is initialized
+	 * or override <code>getLevelsOfCatVar(int feat)</code>, <code>getLevelDictionary(int feat)</code> and <code>getCatCodes(int feat)</code>.
+	 * @param n        the number of samples
+	 * @param p        the number of variables
+	 * @param labels   the <code>n</code> class labels encoded as integers from 0 to <i>number of classes</i> - 1
+	 * @param isCat    a boolean vector of size <code>p</code> indicating for each variable if it is categorical (<code>true</code>) or continuous (<code>false</code>).
+	 */
+	protected Data(int n, int p, int[] labels, boolean[] isCat){
 		this.labels = labels;
 		this.isCat = isCat;
-		n = d.length;
-		p = d[0].length;
+		this.n = n;
+		this.p = p;
 		
 		rowRange = new int[n];
 		for(int i = 0; i < n; i++) rowRange[i] = i;
@@ -76,40 +100,84 @@ public class Data {
 		if(n != labels.length) throw new RuntimeException("The size of the label vector is different from the number of samples in data.");
 		if(p != isCat.length) throw new RuntimeException("The size of the isCat vector is different from the number of dimensions.");
 		
-		// for each categorical feature, store a table with one occurrence of each level
+		TreeSet<Integer> lablvls = new TreeSet<Integer>();
+		for(int l : labels) lablvls.add(l);
+		labelLvls = new int[lablvls.size()];
+		for(int i = 0; i < labelLvls.length; i++) labelLvls[i] = lablvls.pollFirst();
+		
+		clearRanks();
+	}
+	
+	/**
+	 * For each categorical feature, stores a table with one occurrence of each level
+	 * and encodes the value of each sample as the index of its level in this table.
+	 */
+	protected void computeCatLevels(){
 		catLevels = new double[p][];
+		catDictionaries = new LevelDictionary[p];
+		catCodes = new int[p][];
 		for(int i = 0; i < p; i++){ // i is the feature index
 			if(isCat[i]){
-				HashSet<Double> tmp = new HashSet<Double>();
+				// codes are first given by order of appearance, then renumbered in the iteration order of the map
+				HashMap<Double, Integer> tmp = new HashMap<Double, Integer>();
+				int[] codes = new int[n];
 				for(int s = 0; s < n; s++){ // s for sample
-					tmp.add(d[s][i]);
+					Double v = getValue(s, i);
+					Integer code = tmp.get(v);
+					if(code == null){
+						code = tmp.size();
+						tmp.put(v, code);
+					}
+					codes[s] = code;
 				}
 				double[] tmpLvl = new double[tmp.size()];
+				int[] renumber = new int[tmp.size()];
 				int idTmp = 0;
-				for(double cur : tmp){
-					tmpLvl[idTmp] = cur;
+				for(Map.Entry<Double, Integer> cur : tmp.entrySet()){
+					tmpLvl[idTmp] = cur.getKey();
+					renumber[cur.getValue()] = idTmp;
 					idTmp++;
 				}
+				for(int s = 0; s < n; s++) codes[s] = renumber[codes[s]];
 				catLevels[i] = tmpLvl;
+				catDictionaries[i] = new LevelDictionary(tmpLvl);
+				catCodes[i] = codes;
 			}
 		}
-		
-		TreeSet<Integer> lablvls = new TreeSet<Integer>();
-		for(int l : labels) lablvls.add(l);
-		labelLvls = new int[lablvls.size()];
-		for(int i = 0; i < labelLvls.length; i++) labelLvls[i] = lablvls.pollFirst();
-		
 	}
 	
 	/**
 	 * The data is represented as an two dimensional array.
 	 * Let <code> double[][] dataMatrix = d.getData();</code> then <code>d[i][j]</code> is the value of the <i>j</i>-th dimension of the <i>i</i>-th data point. 
 	 * @return the data matrix
+	 * @pre the values are stored as a row matrix (<i>i.e.</i> the object was created with <code>Data(double[][] d,int[] labels, boolean[] isCat)</code>)
 	 */
 	public double[][] getData(){
+		if(d == null){
+			RuntimeException up = new RuntimeException("The values of "+getClass().getSimpleName()+" are not stored as a row matrix, use getValue or getRow");
+			throw up;
+		}
 		return d;
 	}
 	
+	/**
+	 * @param sample the index of a sample
+	 * @param feat the index of a variable
+	 * @return the value of variable <code>feat</code> for sample <code>sample</code>
+	 */
+	public double getValue(int sample, int feat){
+		return d[sample][feat];
+	}
+	
+	/**
+	 * The returned array must not be modified.
+	 * @param sample the index of a sample
+	 * @return the <i>p</i>-dimensional feature vector of sample <code>sample</code>
+	 */
+	public double[] getRow(int sample){
+		return d[sample];
+	}
+	
 	/**
 	 * @return the number <code>n</code> of rows of the data matrix
 	 */
@@ -174,6 +242,88 @@ public class Data {
 		return catLevels[feat];
 	}
 	
+	/**
+	 * @param feat is the index of a categorical variable
+	 * @return the levels of variable <code>feat</code> numbered as in <code>getLevelsOfCatVar(feat)</code>, or <code>null</code> for a continuous variable
+	 */
+	public LevelDictionary getLevelDictionary(int feat){
+		return catDictionaries[feat];
+	}
+	
+	/**
+	 * Categorical variables are dictionary encoded when the data is created, so that splitters can count levels in arrays.
+	 * @param feat is the index of a categorical variable
+	 * @return <code>res[i]</code> is the index in <code>getLevelsOfCatVar(feat)</code> of the value of sample <i>i</i>,
+	 *         or <code>null</code> for a continuous variable
+	 */
+	public int[] getCatCodes(int feat){
+		return catCodes[feat];
+	}
+	
+	/**
+	 * Sorted orders are computed on first use and kept with the data,
+	 * so that they are shared by all the nodes and trees of the forests grown on this object.
+	 * @param feat is the index of a variable
+	 * @return <code>res[i]</code> is the index in <code>getSortedValues(feat)</code> of the value of sample <i>i</i>,
+	 *         or <code>null</code> if ranks are not cached for this data (see <code>setRankCache(boolean cacheRanks)</code>)
+	 */
+	public int[] getRanks(int feat){
+		if(!cacheRanks) return null;
+		int[] res = ranks.get(feat);
+		if(res == null) res = computeRanks(feat);
+		return res;
+	}
+	
+	/**
+	 * @param feat is the index of a variable
+	 * @return the distinct values of variable <code>feat</code> in increasing order (see <code>getRanks(int feat)</code>),
+	 *         or <code>null</code> if ranks are not cached for this data
+	 */
+	public double[] getSortedValues(int feat){
+		if(!cacheRanks) return null;
+		double[] res = sortedValues.get(feat);
+		if(res == null){
+			computeRanks(feat);
+			res = sortedValues.get(feat);
+		}
+		return res;
+	}
+	
+	private synchronized int[] computeRanks(int feat){
+		if(ranks.get(feat) != null) return ranks.get(feat);
+		double[] values = new double[n];
+		for(int i = 0; i < n; i++) values[i] = getValue(i, feat);
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int nDistinct = 0;
+		for(int i = 0; i < n; i++){
+			if(i == 0 || Double.compare(sorted[i], sorted[nDistinct - 1]) != 0) sorted[nDistinct++] = sorted[i];
+		}
+		sorted = Arrays.copyOf(sorted, nDistinct);
+		int[] r = new int[n];
+		for(int i = 0; i < n; i++) r[i] = Arrays.binarySearch(sorted, values[i]);
+		sortedValues.set(feat, sorted);
+		ranks.set(feat, r);
+		return r;
+	}
+	
+	/**
+	 * Ranks take <i>n</i> integers per variable. They can be disabled to save memory, the splitters then sort the values at each node.
+	 * @param cacheRanks indicates if the ranks of the values are computed once and kept with the data
+	 */
+	public void setRankCache(boolean cacheRanks){
+		this.cacheRanks = cacheRanks;
+		clearRanks();
+	}
+	
+	/**
+	 * Forgets the cached ranks
+	 */
+	private synchronized void clearRanks(){
+		ranks = new AtomicReferenceArray<int[]>(p);
+		sortedValues = new AtomicReferenceArray<double[]>(p);
+	}
+	
 	/**
 	 * @return an array containing [0,1,...,nrow-1]
 	 */
@@ -218,8 +368,8 @@ public class Data {
 	@Override
 	public String toString(){
 		String res = "Data :\n";
-		for(double[] i : d){
-			res += Arrays.toString(i) + "\n";
+		for(int i = 0; i < n; i++){
+			res += Arrays.toString(getRow(i)) + "\n";
 		}
 		res += "Labels :\n"+Arrays.toString(labels) + "\n";
 		res += "isCat :\n"+Arrays.toString(isCat) + "\n";
@@ -227,8 +377,8 @@ public class Data {
 		res += "rowRange : "+Arrays.toString(rowRange) + "\n";
 		res += "colRange : "+Arrays.toString(colRange) + "\n";
 		res += "categorical vars + levels :\n";
-		for(int i = 0; i < catLevels.length; i++){
-			res += "\ti = "+i+" --> "+Arrays.toString(catLevels[i]);
+		for(int i = 0; i < p; i++){
+			res += "\ti = "+i+" --> "+Arrays.toString(getLevelsOfCatVar(i));
 		}
 		return res;
 	}
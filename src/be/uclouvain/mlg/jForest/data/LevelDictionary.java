@@ -0,0 +1,112 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.data;
+
+import java.util.Arrays;
+
+/**
+ * The levels of a categorical variable, numbered from 0 to <i>number of levels</i> - 1.
+ * It gives the code of a value in constant time when the levels are integers in a small range
+ * (<i>e.g.</i> R factors, which are encoded from 1 to the number of levels), in logarithmic time otherwise.
+ */
+public final class LevelDictionary {
+
+	private final double[] levels;
+
+	// direct table, when the levels are integers in [offset ; offset + direct.length[
+	private final int offset;
+	private final int[] direct;
+
+	// sorted levels and their codes, otherwise
+	private final double[] sorted;
+	private final int[] sortedCodes;
+
+	/**
+	 * @param levels the levels, <code>levels[c]</code> being the level of code <i>c</i>. They must be distinct.
+	 */
+	public LevelDictionary(double[] levels){
+		this.levels = levels;
+
+		double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+		boolean integers = true;
+		for(double l : levels){
+			if(l != Math.rint(l) || Math.abs(l) > Integer.MAX_VALUE / 2) integers = false;
+			min = Math.min(min, l);
+			max = Math.max(max, l);
+		}
+
+		if(levels.length > 0 && integers && max - min < Math.max(64, 4L * levels.length)){
+			offset = (int) min;
+			direct = new int[(int) (max - min) + 1];
+			Arrays.fill(direct, -1);
+			for(int c = 0; c < levels.length; c++) direct[(int) levels[c] - offset] = c;
+			sorted = null;
+			sortedCodes = null;
+		}
+		else{
+			offset = 0;
+			direct = null;
+			sorted = levels.clone();
+			Arrays.sort(sorted);
+			sortedCodes = new int[levels.length];
+			for(int c = 0; c < levels.length; c++) sortedCodes[Arrays.binarySearch(sorted, levels[c])] = c;
+		}
+	}
+
+	/**
+	 * @param value a value of the variable
+	 * @return the code of <code>value</code>, or -1 if it is not a level of the variable
+	 */
+	public int getCode(double value){
+		if(direct != null){
+			double i = value - offset;
+			if(i >= 0 && i < direct.length && value == Math.rint(value)) return direct[(int) i];
+			return -1;
+		}
+		if(value != value) return -1; // NaN equals no level
+		int k = Arrays.binarySearch(sorted, value);
+		return (k < 0) ? -1 : sortedCodes[k];
+	}
+
+	/**
+	 * @param code a code in <i>[0 ; size()[</i>
+	 * @return the level of code <code>code</code>
+	 */
+	public double getLevel(int code){
+		return levels[code];
+	}
+
+	/**
+	 * @return the number of levels
+	 */
+	public int size(){
+		return levels.length;
+	}
+}
@@ -0,0 +1,84 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package be.uclouvain.mlg.jForest.data;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * A data set whose values stay on disk, in a {@link be.uclouvain.mlg.jForest.data.io.ColumnFile}.
+ * Each column is mapped in memory and only the labels are loaded in the heap (ranks are not cached by default):
+ * the operating system loads the pages of a column when a splitter scans it and evicts them when memory is needed,
+ * so that a forest can be grown on a data set larger than the memory.
+ * <p>
+ * A column cannot exceed 2GB (<i>i.e.</i> 268 million samples).
+ * </p>
+ */
+public class MappedData extends Data {
+
+	private final DoubleBuffer[] cols;
+
+	/**
+	 * Creates a data set from columns mapped in memory. Usually called through <code>ColumnFile.map(File file)</code>.
+	 * @param cols     the <code>p</code> columns, each containing the values of one variable for the <code>n</code> samples
+	 * @param labels   the <code>n</code> class labels encoded as integers from 0 to <i>number of classes</i> - 1
+	 * @param isCat    a boolean vector of size <code>p</code> indicating for each variable if it is categorical (<code>true</code>) or continuous (<code>false</code>).
+	 */
+	public MappedData(DoubleBuffer[] cols, int[] labels, boolean[] isCat){
+		super(labels.length, cols.length, labels, isCat);
+		this.cols = cols;
+		for(DoubleBuffer c : cols){
+			if(c.limit() != labels.length) throw new RuntimeException("The size of a column is different from the size of the label vector.");
+		}
+		computeCatLevels();
+		setRankCache(false); // ranks would take half the size of the data in the heap
+	}
+
+	/**
+	 * The returned buffer is read only. Its absolute <code>get</code> methods can be used by several threads.
+	 * @param feat the index of a variable
+	 * @return the values of variable <code>feat</code> for the <i>n</i> samples
+	 */
+	public DoubleBuffer getColumn(int feat){
+		return cols[feat];
+	}
+
+	@Override
+	public double getValue(int sample, int feat){
+		return cols[feat].get(sample);
+	}
+
+	@Override
+	public double[] getRow(int sample){
+		double[] res = new double[cols.length];
+		for(int j = 0; j < res.length; j++) res[j] = cols[j].get(sample);
+		return res;
+	}
+}
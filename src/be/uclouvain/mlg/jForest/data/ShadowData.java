@@ -0,0 +1,168 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.data;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A subset of the variables of a data set augmented with their <i>shadow</i> copies (see {@link be.uclouvain.mlg.jForest.selection.Boruta}).
+ * For <i>m</i> selected variables, variable <i>j &lt; m</i> is the <code>vars[j]</code>-th variable of the original data
+ * and variable <i>j + m</i> is its shadow: the same values with the rows randomly permuted.
+ * <p>
+ * The values are not copied: each shadow column is represented by a row permutation over the storage of the original data.
+ * However, the ranks and the level codes of a shadow column are indexed by sample by the splitters,
+ * so they are built on first use as a permuted copy of the original ones: <i>n</i> integers per shadow column used,
+ * kept until the next <code>shuffle(Random rnd)</code>.
+ * </p>
+ */
+public class ShadowData extends Data {
+
+	private final Data original;
+	private final int[] vars;
+	private final int[][] perm;
+	private AtomicReferenceArray<int[]> shadowRanks; // published to the threads growing trees
+	private AtomicReferenceArray<int[]> shadowCodes;
+
+	/**
+	 * Creates the shadow data and draws a first permutation of each shadow column
+	 * @param original the data set whose storage is shared
+	 * @param vars the indices of the variables of <code>original</code> to keep (and to shadow)
+	 * @param rnd a random number generator used to permute the shadow columns
+	 */
+	public ShadowData(Data original, int[] vars, Random rnd){
+		super(original.getN(), 2 * vars.length, original.getLabels(), getShadowIsCat(original, vars));
+		this.original = original;
+		this.vars = vars;
+		this.perm = new int[vars.length][original.getN()];
+		shuffle(rnd);
+	}
+
+	private static boolean[] getShadowIsCat(Data original, int[] vars){
+		boolean[] res = new boolean[2 * vars.length];
+		for(int j = 0; j < vars.length; j++){
+			res[j] = original.getIsCat()[vars[j]];
+			res[j + vars.length] = res[j];
+		}
+		return res;
+	}
+
+	/**
+	 * Draws a new permutation of the rows for each shadow column (Fisher–Yates shuffle)
+	 * @param rnd a random number generator
+	 */
+	public synchronized void shuffle(Random rnd){
+		for(int[] pj : perm){
+			for(int i = 0; i < pj.length; i++){
+				int k = rnd.nextInt(i + 1);
+				pj[i] = pj[k];
+				pj[k] = i;
+			}
+		}
+		shadowRanks = new AtomicReferenceArray<int[]>(perm.length);
+		shadowCodes = new AtomicReferenceArray<int[]>(perm.length);
+	}
+
+	/**
+	 * @return the indices, in the original data, of the <i>m</i> first variables
+	 */
+	public int[] getVars(){
+		return vars;
+	}
+
+	@Override
+	public double getValue(int sample, int feat){
+		if(feat < vars.length) return original.getValue(sample, vars[feat]);
+		int j = feat - vars.length;
+		return original.getValue(perm[j][sample], vars[j]);
+	}
+
+	@Override
+	public double[] getRow(int sample){
+		double[] res = new double[getP()];
+		for(int j = 0; j < res.length; j++) res[j] = getValue(sample, j);
+		return res;
+	}
+
+	/**
+	 * The ranks of a shadow column are the original ones, permuted. They are built on first use (<i>n</i> integers).
+	 */
+	@Override
+	public int[] getRanks(int feat){
+		int[] r = original.getRanks(vars[feat % vars.length]);
+		if(r == null || feat < vars.length) return r;
+		int j = feat - vars.length;
+		int[] res = shadowRanks.get(j);
+		return (res == null) ? computeShadowRanks(j, r) : res;
+	}
+
+	private synchronized int[] computeShadowRanks(int j, int[] r){
+		if(shadowRanks.get(j) == null) shadowRanks.set(j, permute(r, perm[j]));
+		return shadowRanks.get(j);
+	}
+
+	private static int[] permute(int[] x, int[] p){
+		int[] res = new int[x.length];
+		for(int i = 0; i < res.length; i++) res[i] = x[p[i]];
+		return res;
+	}
+
+	@Override
+	public double[] getSortedValues(int feat){
+		return original.getSortedValues(vars[feat % vars.length]);
+	}
+
+	@Override
+	public double[] getLevelsOfCatVar(int feat){
+		return original.getLevelsOfCatVar(vars[feat % vars.length]);
+	}
+
+	@Override
+	public LevelDictionary getLevelDictionary(int feat){
+		return original.getLevelDictionary(vars[feat % vars.length]);
+	}
+
+	/**
+	 * As ranks, the codes of a shadow column are the original ones, permuted. They are built on first use (<i>n</i> integers).
+	 */
+	@Override
+	public int[] getCatCodes(int feat){
+		int[] c = original.getCatCodes(vars[feat % vars.length]);
+		if(c == null || feat < vars.length) return c;
+		int j = feat - vars.length;
+		int[] res = shadowCodes.get(j);
+		return (res == null) ? computeShadowCodes(j, c) : res;
+	}
+
+	private synchronized int[] computeShadowCodes(int j, int[] c){
+		if(shadowCodes.get(j) == null) shadowCodes.set(j, permute(c, perm[j]));
+		return shadowCodes.get(j);
+	}
+}
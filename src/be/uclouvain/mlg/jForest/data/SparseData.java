@@ -0,0 +1,198 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.data;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Sparse representation of a data matrix with class labels, stored in compressed sparse column (CSC) format:
+ * the non-zero values of variable <i>j</i> are <code>values[colPtr[j] .. colPtr[j+1]-1]</code>
+ * and belong to the samples <code>rowIds[colPtr[j] .. colPtr[j+1]-1]</code>, sorted by increasing index.
+ * All the other values are 0.
+ * <p>
+ * The memory used is proportional to the number of non-zero values.
+ * The sparse splitters ({@link be.uclouvain.mlg.jForest.splitting.SparseCARTSplitter} and {@link be.uclouvain.mlg.jForest.splitting.SparseExtraTreesSplitter})
+ * only read the non-zero values of a node, the other splitters still work through <code>getValue(int sample, int feat)</code>
+ * which costs <i>O(log(number of non-zero values of feat))</i>.
+ * </p>
+ */
+public class SparseData extends Data {
+
+	private final int[] colPtr;
+	private final int[] rowIds;
+	private final double[] values;
+
+	private final AtomicReferenceArray<int[]> nzRanks; // published by computeNonZeroRanks to the threads growing trees
+	private final AtomicReferenceArray<double[]> nzSortedValues;
+
+	/**
+	 * Creates a data set from a matrix in compressed sparse column format (the layout of a <code>dgCMatrix</code> of the R package Matrix).
+	 * @param n        the number of samples
+	 * @param colPtr   the <code>p+1</code> offsets of the columns in <code>rowIds</code> and <code>values</code>, starting with 0
+	 * @param rowIds   the sample index of each non-zero value, sorted by increasing order within each column
+	 * @param values   the non-zero values. The levels of categorical variables should be encoded as numeric (per dimension).
+	 * @param labels   the <code>n</code> class labels encoded as integers from 0 to <i>number of classes</i> - 1
+	 * @param isCat    a boolean vector of size <code>p</code> indicating for each variable if it is categorical (<code>true</code>) or continuous (<code>false</code>).
+	 */
+	public SparseData(int n, int[] colPtr, int[] rowIds, double[] values, int[] labels, boolean[] isCat){
+		super(n, colPtr.length - 1, labels, isCat);
+		this.colPtr = colPtr;
+		this.rowIds = rowIds;
+		this.values = values;
+
+		if(rowIds.length != values.length) throw new RuntimeException("The number of row indices is different from the number of values.");
+		if(colPtr[0] != 0 || colPtr[colPtr.length - 1] != values.length) throw new RuntimeException("The column offsets do not cover the "+values.length+" values.");
+		for(int j = 0; j < getP(); j++){
+			if(colPtr[j] > colPtr[j + 1]) throw new RuntimeException("The column offsets are not increasing at column "+j+".");
+			for(int k = colPtr[j]; k < colPtr[j + 1]; k++){
+				if(rowIds[k] < 0 || rowIds[k] >= n || (k > colPtr[j] && rowIds[k] <= rowIds[k - 1])){
+					RuntimeException up = new RuntimeException("The row indices of column "+j+" are not sorted in [0 ; "+n+"[.");
+					throw up;
+				}
+			}
+		}
+
+		nzRanks = new AtomicReferenceArray<int[]>(getP());
+		nzSortedValues = new AtomicReferenceArray<double[]>(getP());
+		computeCatLevels();
+		setRankCache(false); // dense ranks would take n integers per variable
+	}
+
+	/**
+	 * Creates a data set from a matrix in compressed sparse row (CSR) format, which is transposed to the column format.
+	 * The non-zero values of sample <i>i</i> are <code>values[rowPtr[i] .. rowPtr[i+1]-1]</code>
+	 * for the variables <code>colIds[rowPtr[i] .. rowPtr[i+1]-1]</code> (in any order).
+	 * @param p        the number of variables
+	 * @param rowPtr   the <code>n+1</code> offsets of the rows in <code>colIds</code> and <code>values</code>, starting with 0
+	 * @param colIds   the variable index of each non-zero value
+	 * @param values   the non-zero values
+	 * @param labels   the <code>n</code> class labels encoded as integers from 0 to <i>number of classes</i> - 1
+	 * @param isCat    a boolean vector of size <code>p</code> indicating for each variable if it is categorical (<code>true</code>) or continuous (<code>false</code>).
+	 * @return the data set in compressed sparse column format
+	 */
+	public static SparseData fromRows(int p, int[] rowPtr, int[] colIds, double[] values, int[] labels, boolean[] isCat){
+		int n = rowPtr.length - 1;
+		if(colIds.length != values.length) throw new RuntimeException("The number of column indices is different from the number of values.");
+		int[] colPtr = new int[p + 1];
+		for(int c : colIds){
+			if(c < 0 || c >= p) throw new RuntimeException("Column index "+c+" is not in [0 ; "+p+"[.");
+			colPtr[c + 1]++;
+		}
+		for(int j = 0; j < p; j++) colPtr[j + 1] += colPtr[j];
+
+		int[] next = Arrays.copyOf(colPtr, p);
+		int[] rowIds = new int[colIds.length];
+		double[] cscValues = new double[values.length];
+		for(int i = 0; i < n; i++){ // rows are visited in order, so that row indices are sorted in each column
+			for(int k = rowPtr[i]; k < rowPtr[i + 1]; k++){
+				int pos = next[colIds[k]]++;
+				rowIds[pos] = i;
+				cscValues[pos] = values[k];
+			}
+		}
+		return new SparseData(n, colPtr, rowIds, cscValues, labels, isCat);
+	}
+
+	/**
+	 * @return the <code>p+1</code> offsets of the columns in <code>getRowIds()</code> and <code>getNonZeroValues()</code>
+	 */
+	public int[] getColPtr(){
+		return colPtr;
+	}
+
+	/**
+	 * @return the sample index of each non-zero value
+	 */
+	public int[] getRowIds(){
+		return rowIds;
+	}
+
+	/**
+	 * @return the non-zero values, column by column
+	 */
+	public double[] getNonZeroValues(){
+		return values;
+	}
+
+	/**
+	 * The ranks of the non-zero values are computed on first use and kept with the data.
+	 * @param feat is the index of a variable
+	 * @return <code>res[k - colPtr[feat]]</code> is the index in <code>getSortedNonZeroValues(feat)</code> of <code>values[k]</code>
+	 */
+	public int[] getNonZeroRanks(int feat){
+		int[] res = nzRanks.get(feat);
+		if(res == null) res = computeNonZeroRanks(feat);
+		return res;
+	}
+
+	/**
+	 * @param feat is the index of a variable
+	 * @return the distinct values stored for variable <code>feat</code> in increasing order (see <code>getNonZeroRanks(int feat)</code>)
+	 */
+	public double[] getSortedNonZeroValues(int feat){
+		double[] res = nzSortedValues.get(feat);
+		if(res == null){
+			computeNonZeroRanks(feat);
+			res = nzSortedValues.get(feat);
+		}
+		return res;
+	}
+
+	private synchronized int[] computeNonZeroRanks(int feat){
+		if(nzRanks.get(feat) != null) return nzRanks.get(feat);
+		int start = colPtr[feat], end = colPtr[feat + 1];
+		double[] sorted = Arrays.copyOfRange(values, start, end);
+		Arrays.sort(sorted);
+		int nDistinct = 0;
+		for(int i = 0; i < sorted.length; i++){
+			if(i == 0 || Double.compare(sorted[i], sorted[nDistinct - 1]) != 0) sorted[nDistinct++] = sorted[i];
+		}
+		sorted = Arrays.copyOf(sorted, nDistinct);
+		int[] r = new int[end - start];
+		for(int k = start; k < end; k++) r[k - start] = Arrays.binarySearch(sorted, values[k]);
+		nzSortedValues.set(feat, sorted);
+		nzRanks.set(feat, r);
+		return r;
+	}
+
+	@Override
+	public double getValue(int sample, int feat){
+		int k = Arrays.binarySearch(rowIds, colPtr[feat], colPtr[feat + 1], sample);
+		return k < 0 ? 0 : values[k];
+	}
+
+	@Override
+	public double[] getRow(int sample){
+		double[] res = new double[getP()];
+		for(int j = 0; j < res.length; j++) res[j] = getValue(sample, j);
+		return res;
+	}
+}
@@ -0,0 +1,490 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package be.uclouvain.mlg.jForest.data.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import be.uclouvain.mlg.jForest.data.ColumnData;
+import be.uclouvain.mlg.jForest.tools.Parallel;
+
+/**
+ * Loads an <a href="https://arrow.apache.org/docs/format/Columnar.html">Apache Arrow</a> IPC file
+ * (file format, which is also the Feather V2 format, or stream format) into a {@link ColumnData}.
+ * <p>
+ * The record batches are concatenated. Each Arrow column is copied directly into the column of a variable:
+ * <ul>
+ *     <li>float64, float32, integer and boolean columns become continuous variables</li>
+ *     <li>dictionary encoded columns become categorical variables whose values are the dictionary indices (see <code>getLevels(int feat)</code>)</li>
+ *     <li>the label column (integer, float or dictionary encoded) is encoded as integers from 0 to <i>number of classes</i> - 1,
+ *         in increasing order of its values (or of its dictionary indices)</li>
+ * </ul>
+ * Columns of other types must be ignored (see <code>setIgnoredColumns(String[] columns)</code>).
+ * Compressed buffers, big-endian files and missing values are not supported.
+ * The metadata are decoded by a minimal FlatBuffers reader, hence no Arrow library is needed.
+ * </p>
+ */
+public class ArrowLoader {
+
+	// values of the Type union of the Arrow schema
+	private static final int TYPE_NULL = 1, TYPE_INT = 2, TYPE_FLOAT = 3, TYPE_BINARY = 4, TYPE_UTF8 = 5, TYPE_BOOL = 6,
+	                         TYPE_LIST = 12, TYPE_STRUCT = 13, TYPE_FIXED_SIZE_LIST = 16, TYPE_MAP = 17,
+	                         TYPE_LARGE_BINARY = 19, TYPE_LARGE_UTF8 = 20, TYPE_LARGE_LIST = 21, TYPE_RUN_END_ENCODED = 22;
+	private static final int PRECISION_SINGLE = 1, PRECISION_DOUBLE = 2;
+	// values of the MessageHeader union
+	private static final int HEADER_SCHEMA = 1, HEADER_DICTIONARY_BATCH = 2, HEADER_RECORD_BATCH = 3;
+
+	private static final int LABEL = -1, IGNORED = -2;
+
+	private final String labelColumn;
+	private String[] ignoredColumns = new String[0];
+	private int nThreads = Parallel.getDefaultNbThreads();
+
+	private String[] featureNames;
+	private String[][] levels;
+	private String[] labelLevels;
+
+	/**
+	 * Creates a loader
+	 * @param labelColumn the name of the column containing the class labels, the other columns are the variables
+	 */
+	public ArrowLoader(String labelColumn){
+		this.labelColumn = labelColumn;
+	}
+
+	/**
+	 * @param columns the names of columns that are not loaded
+	 */
+	public void setIgnoredColumns(String[] columns){
+		this.ignoredColumns = columns;
+	}
+
+	/**
+	 * @param nThreads the number of threads copying the columns of a record batch
+	 */
+	public void setNbThreads(int nThreads){
+		this.nThreads = nThreads;
+	}
+
+	/**
+	 * A top level field of the schema
+	 */
+	private static final class Column {
+		String name;
+		int type, bitWidth, precision;
+		boolean signed;
+		long dictionaryId = -1;
+		int valueType, valueBitWidth, valuePrecision; // type of the values of the dictionary
+		boolean valueSigned;
+		int nNodes, nBuffers; // in a record batch
+		int role; // index of the variable, LABEL or IGNORED
+	}
+
+	/**
+	 * An encapsulated message of the file
+	 */
+	private static final class Message {
+		final FlatTable header;
+		final int headerType;
+		final long bodyStart, bodyLength;
+
+		Message(FlatTable message, long bodyStart){
+			this.headerType = message.getUByte(1, 0);
+			this.header = message.getTable(2);
+			this.bodyStart = bodyStart;
+			this.bodyLength = message.getLong(3, 0);
+		}
+	}
+
+	/**
+	 * Loads a file
+	 * @param file an Arrow IPC file
+	 * @return the variables and the encoded class labels of the file
+	 * @throws IOException if the file cannot be read or is not a supported Arrow file
+	 */
+	public ColumnData load(File file) throws IOException{
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+			ArrayList<Message> messages = readMessages(channel);
+			if(messages.isEmpty() || messages.get(0).headerType != HEADER_SCHEMA) throw new IOException("The first message of an Arrow file must be a schema");
+
+			final Column[] columns = readSchema(messages.get(0).header);
+			int p = 0;
+			for(Column c : columns) if(c.role >= 0) p++;
+
+			long total = 0;
+			for(Message m : messages){
+				if(m.headerType == HEADER_RECORD_BATCH) total += m.header.getLong(0, 0);
+			}
+			if(total > Integer.MAX_VALUE - 8) throw new IOException("Too many rows in "+file);
+			final int n = (int) total;
+
+			final double[][] cols = new double[p][n];
+			final double[] rawLabels = new double[n];
+			HashMap<Long, ArrayList<String>> dictionaries = new HashMap<Long, ArrayList<String>>();
+			int row = 0;
+			for(Message m : messages){
+				if(m.headerType == HEADER_DICTIONARY_BATCH){
+					if(row > 0 && !m.header.getBool(2, false)) throw new IOException("Dictionary replacements are not supported");
+					readDictionary(channel, m, columns, dictionaries);
+				}
+				else if(m.headerType == HEADER_RECORD_BATCH){
+					row += readRecordBatch(channel, m, columns, cols, rawLabels, row);
+				}
+			}
+
+			featureNames = new String[p];
+			levels = new String[p][];
+			boolean[] isCat = new boolean[p];
+			int[] labels = null;
+			for(Column c : columns){
+				if(c.role >= 0){
+					featureNames[c.role] = c.name;
+					if(c.dictionaryId >= 0){
+						isCat[c.role] = true;
+						ArrayList<String> dict = dictionaries.get(c.dictionaryId);
+						levels[c.role] = dict == null ? new String[0] : dict.toArray(new String[dict.size()]);
+					}
+				}
+				else if(c.role == LABEL){
+					labels = encodeLabels(rawLabels, c.dictionaryId >= 0 ? dictionaries.get(c.dictionaryId) : null);
+				}
+			}
+			return new ColumnData(cols, labels, isCat);
+		}
+	}
+
+	/**
+	 * @return the names of the variables
+	 */
+	public String[] getFeatureNames(){
+		return featureNames;
+	}
+
+	/**
+	 * @param feat the index of a variable
+	 * @return the dictionary of a categorical variable (level <i>k</i> is encoded as <i>k</i>), <code>null</code> for a continuous variable
+	 */
+	public String[] getLevels(int feat){
+		return levels[feat];
+	}
+
+	/**
+	 * @return the class labels of the file (label <i>k</i> is encoded as <i>k</i>)
+	 */
+	public String[] getLabelLevels(){
+		return labelLevels;
+	}
+
+	private static ArrayList<Message> readMessages(FileChannel channel) throws IOException{
+		long size = channel.size();
+		long pos = 0, end = size;
+		byte[] magic = new byte[6];
+		if(size >= 6) map(channel, 0, 6).get(magic);
+		String start = new String(magic, StandardCharsets.US_ASCII);
+		if(start.startsWith("FEA1")) throw new IOException("Feather V1 files are not supported, write Feather V2 (Arrow IPC) files");
+		if(start.equals("ARROW1")){ // file format: magic, stream, footer, footer size, magic
+			pos = 8;
+			int footerLength = map(channel, size - 10, 4).getInt();
+			end = size - 10 - footerLength;
+		}
+
+		ArrayList<Message> res = new ArrayList<Message>();
+		while(pos + 4 <= end){
+			int metaLength = map(channel, pos, 4).getInt();
+			long metaStart = pos + 4;
+			if(metaLength == -1){ // continuation marker
+				metaLength = map(channel, pos + 4, 4).getInt();
+				metaStart = pos + 8;
+			}
+			if(metaLength == 0) break; // end of stream
+			Message m = new Message(FlatTable.getRoot(map(channel, metaStart, metaLength)), metaStart + metaLength);
+			res.add(m);
+			pos = m.bodyStart + m.bodyLength;
+		}
+		return res;
+	}
+
+	private static ByteBuffer map(FileChannel channel, long pos, long length) throws IOException{
+		if(length > Integer.MAX_VALUE) throw new IOException("Arrow messages larger than 2GB are not supported");
+		return channel.map(FileChannel.MapMode.READ_ONLY, pos, length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private Column[] readSchema(FlatTable schema) throws IOException{
+		if(schema.getShort(0, 0) != 0) throw new IOException("Big-endian Arrow files are not supported");
+		Column[] res = new Column[schema.getVectorLength(1)];
+		int nFeat = 0;
+		boolean hasLabel = false;
+		for(int k = 0; k < res.length; k++){
+			FlatTable field = schema.getTable(1, k);
+			Column c = new Column();
+			c.name = field.getString(0);
+			c.nNodes = countNodes(field);
+			c.nBuffers = countBuffers(field);
+
+			FlatTable type = field.getTable(3);
+			FlatTable dictionary = field.getTable(4);
+			if(dictionary != null){
+				c.dictionaryId = dictionary.getLong(0, 0);
+				FlatTable indexType = dictionary.getTable(1);
+				c.type = TYPE_INT;
+				c.bitWidth = indexType == null ? 32 : indexType.getInt(0, 32);
+				c.signed = indexType == null || indexType.getBool(1, false);
+				c.valueType = field.getUByte(2, 0);
+				c.valueBitWidth = type == null ? 0 : type.getInt(0, 0);
+				c.valueSigned = type != null && type.getBool(1, false);
+				c.valuePrecision = type == null ? 0 : type.getShort(0, 0);
+			}
+			else{
+				c.type = field.getUByte(2, 0);
+				c.bitWidth = c.type == TYPE_INT ? type.getInt(0, 0) : 0;
+				c.signed = c.type == TYPE_INT && type.getBool(1, false);
+				c.precision = c.type == TYPE_FLOAT ? type.getShort(0, 0) : 0;
+			}
+
+			if(c.name.equals(labelColumn)){
+				c.role = LABEL;
+				hasLabel = true;
+			}
+			else if(Arrays.asList(ignoredColumns).contains(c.name)) c.role = IGNORED;
+			else c.role = nFeat++;
+
+			if(c.role != IGNORED && !isNumeric(c.type, c.precision)){
+				throw new IOException("The type of column "+c.name+" is not supported, it should be ignored");
+			}
+			res[k] = c;
+		}
+		if(!hasLabel) throw new IOException("There is no column "+labelColumn);
+		return res;
+	}
+
+	private static boolean isNumeric(int type, int precision){
+		return type == TYPE_INT || type == TYPE_BOOL || (type == TYPE_FLOAT && (precision == PRECISION_SINGLE || precision == PRECISION_DOUBLE));
+	}
+
+	/**
+	 * @return the number of field nodes of a field in a record batch (the field and its descendants)
+	 */
+	private static int countNodes(FlatTable field){
+		int res = 1;
+		for(int k = 0; k < field.getVectorLength(5); k++) res += countNodes(field.getTable(5, k));
+		return res;
+	}
+
+	/**
+	 * @return the number of buffers of a field in a record batch (including those of its descendants)
+	 */
+	private static int countBuffers(FlatTable field) throws IOException{
+		int res;
+		if(field.has(4)) res = 2; // validity and indices
+		else{
+			switch(field.getUByte(2, 0)){
+				case TYPE_NULL:
+				case TYPE_RUN_END_ENCODED:
+					res = 0;
+					break;
+				case TYPE_BINARY:
+				case TYPE_UTF8:
+				case TYPE_LARGE_BINARY:
+				case TYPE_LARGE_UTF8:
+					res = 3; // validity, offsets and data
+					break;
+				case TYPE_STRUCT:
+				case TYPE_FIXED_SIZE_LIST:
+					res = 1; // validity
+					break;
+				case TYPE_LIST:
+				case TYPE_LARGE_LIST:
+				case TYPE_MAP:
+					res = 2; // validity and offsets
+					break;
+				case 14: // union
+				case 23: // binary view
+				case 24: // utf8 view
+				case 25: // list view
+				case 26: // large list view
+					throw new IOException("The type of column "+field.getString(0)+" cannot be skipped");
+				default: // fixed width types
+					res = 2;
+			}
+		}
+		for(int k = 0; k < field.getVectorLength(5); k++) res += countBuffers(field.getTable(5, k));
+		return res;
+	}
+
+	/**
+	 * Copies the columns of a record batch in parallel
+	 * @return the number of rows of the batch
+	 */
+	private int readRecordBatch(FileChannel channel, Message m, final Column[] columns, final double[][] cols, final double[] rawLabels, final int row) throws IOException{
+		final FlatTable batch = m.header;
+		if(batch.has(3)) throw new IOException("Compressed Arrow files are not supported");
+		final int length = (int) batch.getLong(0, 0);
+		final ByteBuffer body = map(channel, m.bodyStart, m.bodyLength);
+
+		final int[] firstNode = new int[columns.length], firstBuffer = new int[columns.length];
+		for(int k = 1; k < columns.length; k++){
+			firstNode[k] = firstNode[k - 1] + columns[k - 1].nNodes;
+			firstBuffer[k] = firstBuffer[k - 1] + columns[k - 1].nBuffers;
+		}
+
+		Parallel.forEachBlock(columns.length, nThreads, new Parallel.Block() {
+			@Override
+			public void run(int from, int to) {
+				for(int k = from; k < to; k++){
+					Column c = columns[k];
+					if(c.role == IGNORED) continue;
+					if(batch.getStructLong(1, 16, firstNode[k], 8) > 0) throw new RuntimeException("Column "+c.name+" has missing values");
+					long offset = batch.getStructLong(2, 16, firstBuffer[k] + 1, 0);
+					double[] dst = c.role == LABEL ? rawLabels : cols[c.role];
+					readValues(body, (int) offset, c.type, c.bitWidth, c.signed, c.precision, length, dst, row);
+				}
+			}
+		});
+		return length;
+	}
+
+	/**
+	 * Converts <code>len</code> values of a buffer to doubles
+	 */
+	private static void readValues(ByteBuffer body, int offset, int type, int bitWidth, boolean signed, int precision, int len, double[] dst, int dstOffset){
+		if(type == TYPE_FLOAT && precision == PRECISION_DOUBLE){
+			ByteBuffer b = body.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+			b.position(offset);
+			b.asDoubleBuffer().get(dst, dstOffset, len);
+		}
+		else if(type == TYPE_FLOAT){
+			for(int i = 0; i < len; i++) dst[dstOffset + i] = body.getFloat(offset + 4 * i);
+		}
+		else if(type == TYPE_BOOL){
+			for(int i = 0; i < len; i++) dst[dstOffset + i] = (body.get(offset + (i >>> 3)) >>> (i & 7)) & 1;
+		}
+		else if(type == TYPE_INT){
+			switch(bitWidth){
+				case 8:
+					for(int i = 0; i < len; i++){
+						byte v = body.get(offset + i);
+						dst[dstOffset + i] = signed ? v : v & 0xFF;
+					}
+					break;
+				case 16:
+					for(int i = 0; i < len; i++){
+						short v = body.getShort(offset + 2 * i);
+						dst[dstOffset + i] = signed ? v : v & 0xFFFF;
+					}
+					break;
+				case 32:
+					for(int i = 0; i < len; i++){
+						int v = body.getInt(offset + 4 * i);
+						dst[dstOffset + i] = signed ? v : v & 0xFFFFFFFFL;
+					}
+					break;
+				case 64:
+					for(int i = 0; i < len; i++){
+						long v = body.getLong(offset + 8 * i);
+						dst[dstOffset + i] = signed || v >= 0 ? v : (v >>> 1) * 2.0 + (v & 1);
+					}
+					break;
+				default:
+					throw new RuntimeException("Unsupported integer width: "+bitWidth);
+			}
+		}
+		else throw new RuntimeException("Unsupported type: "+type);
+	}
+
+	/**
+	 * Reads the values of a dictionary batch (or appends them for a delta batch)
+	 */
+	private static void readDictionary(FileChannel channel, Message m, Column[] columns, HashMap<Long, ArrayList<String>> dictionaries) throws IOException{
+		long id = m.header.getLong(0, 0);
+		Column c = null;
+		for(Column cur : columns) if(cur.dictionaryId == id) c = cur;
+		if(c == null) return; // not used by a top level field
+
+		FlatTable batch = m.header.getTable(1);
+		if(batch.has(3)) throw new IOException("Compressed Arrow files are not supported");
+		int length = (int) batch.getLong(0, 0);
+		ByteBuffer body = map(channel, m.bodyStart, m.bodyLength);
+
+		ArrayList<String> values = m.header.getBool(2, false) && dictionaries.containsKey(id) ? dictionaries.get(id) : new ArrayList<String>(length);
+		if(c.valueType == TYPE_UTF8 || c.valueType == TYPE_LARGE_UTF8 || c.valueType == TYPE_BINARY || c.valueType == TYPE_LARGE_BINARY){
+			boolean large = c.valueType == TYPE_LARGE_UTF8 || c.valueType == TYPE_LARGE_BINARY;
+			int offsets = (int) batch.getStructLong(2, 16, 1, 0);
+			int data = (int) batch.getStructLong(2, 16, 2, 0);
+			for(int i = 0; i < length; i++){
+				int s = (int) (large ? body.getLong(offsets + 8 * i) : body.getInt(offsets + 4 * i));
+				int e = (int) (large ? body.getLong(offsets + 8 * i + 8) : body.getInt(offsets + 4 * i + 4));
+				byte[] b = new byte[e - s];
+				for(int k = 0; k < b.length; k++) b[k] = body.get(data + s + k);
+				values.add(new String(b, StandardCharsets.UTF_8));
+			}
+		}
+		else if(isNumeric(c.valueType, c.valuePrecision)){
+			double[] v = new double[length];
+			readValues(body, (int) batch.getStructLong(2, 16, 1, 0), c.valueType, c.valueBitWidth, c.valueSigned, c.valuePrecision, length, v, 0);
+			for(double x : v) values.add(toString(x));
+		}
+		else throw new IOException("The dictionary of column "+c.name+" has an unsupported type");
+		dictionaries.put(id, values);
+	}
+
+	private static String toString(double x){
+		return x == Math.rint(x) && Math.abs(x) < 1e15 ? Long.toString((long) x) : Double.toString(x);
+	}
+
+	/**
+	 * @param dictionary the dictionary of the label column, <code>null</code> if it is not dictionary encoded
+	 * @return the labels encoded as the ranks of the distinct values of <code>rawLabels</code>
+	 */
+	private int[] encodeLabels(double[] rawLabels, ArrayList<String> dictionary){
+		double[] distinct = rawLabels.clone();
+		Arrays.sort(distinct);
+		int nDistinct = 0;
+		for(int i = 0; i < distinct.length; i++){
+			if(i == 0 || distinct[i] != distinct[nDistinct - 1]) distinct[nDistinct++] = distinct[i];
+		}
+		distinct = Arrays.copyOf(distinct, nDistinct);
+
+		labelLevels = new String[nDistinct];
+		for(int k = 0; k < nDistinct; k++) labelLevels[k] = dictionary == null ? toString(distinct[k]) : dictionary.get((int) distinct[k]);
+
+		int[] res = new int[rawLabels.length];
+		for(int i = 0; i < res.length; i++) res[i] = Arrays.binarySearch(distinct, rawLabels[i]);
+		return res;
+	}
+}
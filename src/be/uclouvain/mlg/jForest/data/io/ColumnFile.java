@@ -0,0 +1,257 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package be.uclouvain.mlg.jForest.data.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import be.uclouvain.mlg.jForest.data.ColumnData;
+import be.uclouvain.mlg.jForest.data.Data;
+import be.uclouvain.mlg.jForest.data.MappedData;
+import be.uclouvain.mlg.jForest.tools.Parallel;
+
+/**
+ * A simple column oriented binary format for data sets.
+ * All numbers are big-endian and every section starts at a multiple of 8 bytes:
+ * <ol>
+ *     <li>the magic number <code>MAGIC</code> (8 bytes), then <i>n</i> and <i>p</i> (4 bytes each)</li>
+ *     <li><i>p</i> bytes: 1 if the variable is categorical, 0 otherwise</li>
+ *     <li><i>n</i> 4 bytes integers: the class labels, from 0 to <i>number of classes</i> - 1</li>
+ *     <li><i>p</i> columns of <i>n</i> doubles: the values of each variable</li>
+ * </ol>
+ * Each column is read independently, hence the columns are loaded in parallel
+ * (or mapped in memory, see {@link MappedData}).
+ * The labels and the columns are read by chunks of <code>CHUNK</code> values, so the buffers stay small whatever <i>n</i>.
+ */
+public final class ColumnFile {
+
+	/**
+	 * The first 8 bytes of a column file ("jFcol" followed by the version of the format)
+	 */
+	public static final long MAGIC = 0x6A46636F6C000001L;
+
+	private static final int CHUNK = 1 << 16; // number of values read at once
+
+	private final int n, p;
+	private final boolean[] isCat;
+	private final int[] labels;
+	private final long colStart;
+
+	private ColumnFile(int n, int p, boolean[] isCat, int[] labels){
+		this.n = n;
+		this.p = p;
+		this.isCat = isCat;
+		this.labels = labels;
+		this.colStart = getColStart(n, p);
+	}
+
+	private static long getColStart(int n, int p){
+		return 16 + align(p) + align(4L * n);
+	}
+
+	private static long align(long nBytes){
+		return (nBytes + 7) / 8 * 8;
+	}
+
+	/**
+	 * Reads the header, the variable types and the labels of a column file
+	 * @param channel a channel on a column file
+	 * @return the description of the file, from which the position of each column is known
+	 * @throws IOException if the file cannot be read or is not a column file
+	 */
+	public static ColumnFile readHeader(FileChannel channel) throws IOException{
+		ByteBuffer header = ByteBuffer.allocate(16);
+		readFully(channel, header, 0);
+		if(header.getLong(0) != MAGIC) throw new IOException("Not a jForest column file");
+		int n = header.getInt(8), p = header.getInt(12);
+		if(n < 0 || p < 0) throw new IOException("Invalid column file header: n = "+n+", p = "+p);
+
+		ByteBuffer types = ByteBuffer.allocate(p);
+		readFully(channel, types, 16);
+		boolean[] isCat = new boolean[p];
+		for(int j = 0; j < p; j++) isCat[j] = types.get(j) != 0;
+
+		int[] labels = new int[n];
+		ByteBuffer lab = ByteBuffer.allocate(4 * Math.min(n, CHUNK));
+		for(int from = 0; from < n; from += CHUNK){
+			int len = Math.min(CHUNK, n - from);
+			lab.clear();
+			lab.limit(4 * len);
+			readFully(channel, lab, 16 + align(p) + 4L * from);
+			lab.asIntBuffer().get(labels, from, len);
+		}
+
+		return new ColumnFile(n, p, isCat, labels);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException{
+		while(buf.hasRemaining()){
+			int read = channel.read(buf, position + buf.position());
+			if(read < 0) throw new IOException("Unexpected end of file");
+		}
+		buf.flip();
+	}
+
+	/**
+	 * Loads a column file in memory. The columns are read in parallel.
+	 * @param file a column file
+	 * @param nThreads the number of threads reading the columns
+	 * @return a data set with the content of the file
+	 * @throws IOException if the file cannot be read or is not a column file
+	 */
+	public static ColumnData read(File file, int nThreads) throws IOException{
+		try(final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+			final ColumnFile header = readHeader(channel);
+			final double[][] cols = new double[header.p][header.n];
+			final IOException[] error = new IOException[1];
+
+			Parallel.forEachBlock(header.p, nThreads, new Parallel.Block() {
+				@Override
+				public void run(int from, int to) {
+					int n = header.n;
+					ByteBuffer buf = ByteBuffer.allocate(8 * Math.min(n, CHUNK));
+					try{
+						for(int j = from; j < to; j++){
+							for(int i = 0; i < n; i += CHUNK){
+								int len = Math.min(CHUNK, n - i);
+								buf.clear();
+								buf.limit(8 * len);
+								readFully(channel, buf, header.getColumnPosition(j) + 8L * i);
+								buf.asDoubleBuffer().get(cols[j], i, len);
+							}
+						}
+					}catch(IOException e){
+						error[0] = e;
+					}
+				}
+			});
+			if(error[0] != null) throw error[0];
+
+			return new ColumnData(cols, header.labels, header.isCat);
+		}
+	}
+
+	/**
+	 * Maps the columns of a column file in memory. Only the labels are loaded in the heap.
+	 * The file should not be modified while the returned object is used.
+	 * @param file a column file
+	 * @return a data set backed by the file
+	 * @throws IOException if the file cannot be read or is not a column file
+	 */
+	public static MappedData map(File file) throws IOException{
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+			ColumnFile header = readHeader(channel);
+			DoubleBuffer[] cols = new DoubleBuffer[header.p];
+			for(int j = 0; j < cols.length; j++) cols[j] = header.mapColumn(channel, j);
+			return new MappedData(cols, header.labels, header.isCat); // the mappings remain valid once the channel is closed
+		}
+	}
+
+	/**
+	 * Writes a data set as a column file
+	 * @param d the data set
+	 * @param file the destination file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Data d, File file) throws IOException{
+		int n = d.getN(), p = d.getP();
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))){
+			out.writeLong(MAGIC);
+			out.writeInt(n);
+			out.writeInt(p);
+			for(boolean c : d.getIsCat()) out.writeByte(c ? 1 : 0);
+			pad(out, p);
+			for(int l : d.getLabels()) out.writeInt(l);
+			pad(out, 4L * n);
+			for(int j = 0; j < p; j++){
+				for(int i = 0; i < n; i++) out.writeDouble(d.getValue(i, j));
+			}
+		}
+	}
+
+	private static void pad(DataOutputStream out, long nBytes) throws IOException{
+		for(long k = nBytes; k < align(nBytes); k++) out.writeByte(0);
+	}
+
+	/**
+	 * @param channel a channel on the column file described by this object
+	 * @param feat the index of a variable
+	 * @return the values of variable <code>feat</code>, mapped in memory (read only)
+	 * @throws IOException if the column cannot be mapped, <i>e.g.</i> if it is larger than the 2GB limit of a mapping
+	 */
+	public DoubleBuffer mapColumn(FileChannel channel, int feat) throws IOException{
+		if(8L * n > Integer.MAX_VALUE) throw new IOException("A column of "+n+" values exceeds the 2GB limit of a memory mapping");
+		return channel.map(FileChannel.MapMode.READ_ONLY, getColumnPosition(feat), 8L * n).asDoubleBuffer();
+	}
+
+	/**
+	 * @param feat the index of a variable
+	 * @return the position, in bytes, of the first value of variable <code>feat</code>
+	 */
+	public long getColumnPosition(int feat){
+		return colStart + 8L * n * feat;
+	}
+
+	/**
+	 * @return the number of samples
+	 */
+	public int getN(){
+		return n;
+	}
+
+	/**
+	 * @return the number of variables
+	 */
+	public int getP(){
+		return p;
+	}
+
+	/**
+	 * @return a vector indicating if variables are categorical
+	 */
+	public boolean[] getIsCat(){
+		return isCat;
+	}
+
+	/**
+	 * @return the class labels
+	 */
+	public int[] getLabels(){
+		return labels;
+	}
+}
@@ -0,0 +1,661 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package be.uclouvain.mlg.jForest.data.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+import be.uclouvain.mlg.jForest.data.ColumnData;
+import be.uclouvain.mlg.jForest.tools.Parallel;
+
+/**
+ * Loads a delimited text file (<i>e.g.</i> CSV) into a {@link ColumnData}, without going through R.
+ * <p>
+ * The file is cut into chunks of whole lines which are processed in parallel.
+ * A first pass counts the rows of each chunk, so that the second pass parses each chunk directly into its rows of the final columns
+ * (no intermediate copy of the values is kept).
+ * While parsing, the type of each variable is inferred: a variable is continuous if all its values are numbers,
+ * otherwise it is categorical and its values are encoded as the indices of its levels, sorted alphabetically.
+ * The levels are the values as written in the file, numbers included (<code>2</code> and <code>02</code> are different levels).
+ * The chunks where some values of a categorical variable were parsed as numbers before it was known to be categorical
+ * are read again, only to get the text of these values.
+ * The class labels are encoded as integers from 0 to <i>number of classes</i> - 1, in the numerical order of the labels
+ * if they are all numbers and in alphabetical order otherwise.
+ * </p>
+ * <p>
+ * Fields may be enclosed in double quotes (a double quote inside such a field is doubled) but cannot span several lines.
+ * Empty fields are not allowed since missing values are not supported.
+ * </p>
+ */
+public class CsvLoader {
+
+	private static final int CHUNK_SIZE = 1 << 26;
+	private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+	                                       1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+	private final byte separator;
+	private final boolean hasHeader;
+	private final int labelCol;
+	private int[] catColumns = new int[0];
+	private int nThreads = Parallel.getDefaultNbThreads();
+
+	private String[] featureNames;
+	private String[][] levels;
+	private String[] labelLevels;
+
+	/**
+	 * Creates a loader
+	 * @param separator the character separating the fields of a line (an ASCII character)
+	 * @param hasHeader indicates if the first line of the file contains the names of the columns
+	 * @param labelCol the index of the column containing the class labels, the other columns are the variables
+	 */
+	public CsvLoader(char separator, boolean hasHeader, int labelCol){
+		if(separator > 127 || separator == '"' || separator == '\n'){
+			RuntimeException up = new RuntimeException("Invalid separator: "+separator);
+			throw up;
+		}
+		this.separator = (byte) separator;
+		this.hasHeader = hasHeader;
+		this.labelCol = labelCol;
+	}
+
+	/**
+	 * Declares columns as categorical even if all their values are numbers. Their values are then kept as is.
+	 * @param columns indices of columns of the file (counting the label column)
+	 */
+	public void setCategoricalColumns(int[] columns){
+		this.catColumns = columns;
+	}
+
+	/**
+	 * @param nThreads the number of threads used to parse the file
+	 */
+	public void setNbThreads(int nThreads){
+		this.nThreads = nThreads;
+	}
+
+	/**
+	 * Loads a file
+	 * @param file a delimited text file
+	 * @return the variables and the encoded class labels of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public ColumnData load(File file) throws IOException{
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+			long size = channel.size();
+
+			byte[] firstLine = readFirstLine(channel);
+			String[] names = splitLine(firstLine);
+			final int nCol = names.length;
+			if(labelCol < 0 || labelCol >= nCol){
+				RuntimeException up = new RuntimeException("The label column "+labelCol+" does not exist, there are "+nCol+" columns");
+				throw up;
+			}
+			featureNames = new String[nCol - 1];
+			for(int c = 0; c < nCol; c++){
+				if(c != labelCol) featureNames[getFeature(c)] = hasHeader ? names[c] : "V" + (c + 1);
+			}
+
+			long dataStart = hasHeader ? Math.min(size, firstLine.length + 1) : 0;
+			final long[] bounds = getChunkBounds(channel, dataStart, size);
+			final int nChunks = bounds.length - 1;
+
+			// first pass: count the rows of each chunk
+			final int[] firstRow = new int[nChunks + 1];
+			runOnChunks(channel, bounds, null, new ChunkTask() {
+				@Override
+				public void run(int k, byte[] buf, int len) {
+					firstRow[k + 1] = countRows(buf, len);
+				}
+			});
+			long total = 0;
+			for(int k = 0; k < nChunks; k++){
+				total += firstRow[k + 1];
+				if(total > Integer.MAX_VALUE - 8) throw new RuntimeException("Too many rows in "+file);
+				firstRow[k + 1] = (int) total;
+			}
+			final int n = (int) total;
+			final int p = nCol - 1;
+
+			// second pass: parse each chunk into its rows
+			final double[][] cols = new double[p][n];
+			final int[] labels = new int[n];
+			final ChunkState[] states = new ChunkState[nChunks];
+			runOnChunks(channel, bounds, null, new ChunkTask() {
+				@Override
+				public void run(int k, byte[] buf, int len) {
+					states[k] = new ChunkState(p, firstRow[k], firstRow[k + 1]);
+					parseChunk(buf, len, states[k], cols, labels, nCol);
+				}
+			});
+
+			// the numbers of categorical variables are read again as text, only in the chunks where some were parsed as numbers
+			final boolean[] isCatCol = new boolean[p];
+			for(ChunkState s : states){
+				for(int j = 0; j < p; j++) isCatCol[j] |= s.dicts[j] != null;
+			}
+			boolean[] toRead = new boolean[nChunks];
+			boolean any = false;
+			for(int k = 0; k < nChunks; k++){
+				for(int j = 0; j < p && !toRead[k]; j++) toRead[k] = isCatCol[j] && states[k].getFirstTextRow(j) > states[k].from;
+				any |= toRead[k];
+			}
+			if(any){
+				runOnChunks(channel, bounds, toRead, new ChunkTask() {
+					@Override
+					public void run(int k, byte[] buf, int len) {
+						parseNumbersAsText(buf, len, states[k], isCatCol, cols, nCol);
+					}
+				});
+			}
+
+			encodeLevels(states, cols);
+			encodeLabels(states, labels);
+
+			boolean[] isCat = new boolean[p];
+			for(int j = 0; j < p; j++) isCat[j] = levels[j] != null;
+			for(int c : catColumns){
+				if(c != labelCol) isCat[getFeature(c)] = true;
+			}
+
+			return new ColumnData(cols, labels, isCat);
+		}
+	}
+
+	/**
+	 * @return the names of the variables (given by the header or <i>V1, V2, ...</i>)
+	 */
+	public String[] getFeatureNames(){
+		return featureNames;
+	}
+
+	/**
+	 * @param feat the index of a variable
+	 * @return the levels of a variable with non numerical values (level <i>k</i> is encoded as <i>k</i>), <code>null</code> otherwise
+	 */
+	public String[] getLevels(int feat){
+		return levels[feat];
+	}
+
+	/**
+	 * @return the class labels of the file (label <i>k</i> is encoded as <i>k</i>)
+	 */
+	public String[] getLabelLevels(){
+		return labelLevels;
+	}
+
+	private int getFeature(int col){
+		return col < labelCol ? col : col - 1;
+	}
+
+	/**
+	 * The dictionaries built while parsing a chunk
+	 */
+	private static final class ChunkState {
+		final int from, to;
+		final HashMap<String, Integer>[] dicts;
+		final int[] firstTextRow;
+		final HashMap<String, Integer> labelDict = new HashMap<String, Integer>();
+		boolean numericLabels = true;
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		ChunkState(int p, int from, int to){
+			this.from = from;
+			this.to = to;
+			this.dicts = new HashMap[p];
+			this.firstTextRow = new int[p];
+		}
+
+		/**
+		 * @return the first row of the chunk from which the values of variable <code>j</code> are encoded in <code>dicts[j]</code>,
+		 *         the values of the previous rows are numbers
+		 */
+		int getFirstTextRow(int j){
+			return dicts[j] == null ? to : firstTextRow[j];
+		}
+	}
+
+	private interface ChunkTask {
+		void run(int k, byte[] buf, int len);
+	}
+
+	/**
+	 * Reads each chunk of the file in a buffer and runs a task on it. The chunks are processed in parallel.
+	 * @param selected the chunks to read, or <code>null</code> to read all of them
+	 */
+	private void runOnChunks(final FileChannel channel, final long[] bounds, final boolean[] selected, final ChunkTask task) throws IOException{
+		final IOException[] error = new IOException[1];
+		Parallel.forEachBlock(bounds.length - 1, nThreads, new Parallel.Block() {
+			@Override
+			public void run(int from, int to) {
+				long maxLen = 0;
+				for(int k = from; k < to; k++){
+					if(selected == null || selected[k]) maxLen = Math.max(maxLen, bounds[k + 1] - bounds[k]);
+				}
+				if(maxLen > Integer.MAX_VALUE - 8) throw new RuntimeException("A line of the file is too long");
+				byte[] buf = new byte[(int) maxLen];
+				try{
+					for(int k = from; k < to; k++){
+						if(selected != null && !selected[k]) continue;
+						int len = (int) (bounds[k + 1] - bounds[k]);
+						ByteBuffer bb = ByteBuffer.wrap(buf, 0, len);
+						while(bb.hasRemaining()){
+							if(channel.read(bb, bounds[k] + bb.position()) < 0) throw new IOException("Unexpected end of file");
+						}
+						task.run(k, buf, len);
+					}
+				}catch(IOException e){
+					error[0] = e;
+				}
+			}
+		});
+		if(error[0] != null) throw error[0];
+	}
+
+	/**
+	 * @return the positions of the chunks: chunk <i>k</i> spans <i>[res[k] ; res[k+1][</i> and starts at the beginning of a line
+	 */
+	private long[] getChunkBounds(FileChannel channel, long start, long end) throws IOException{
+		int nChunks = (int) Math.max(nThreads, (end - start) / CHUNK_SIZE + 1);
+		long[] res = new long[nChunks + 1];
+		res[0] = start;
+		res[nChunks] = end;
+		for(int k = 1; k < nChunks; k++){
+			long pos = start + (end - start) / nChunks * k;
+			res[k] = pos <= start ? start : Math.max(res[k - 1], nextLineStart(channel, pos, end));
+		}
+		return res;
+	}
+
+	private static long nextLineStart(FileChannel channel, long pos, long end) throws IOException{
+		ByteBuffer buf = ByteBuffer.allocate(1 << 12);
+		long cur = pos - 1; // pos is a line start if the previous byte ends a line
+		while(cur < end){
+			buf.clear();
+			int read = channel.read(buf, cur);
+			if(read <= 0) break;
+			for(int i = 0; i < read; i++){
+				if(buf.get(i) == '\n') return cur + i + 1;
+			}
+			cur += read;
+		}
+		return end;
+	}
+
+	private static byte[] readFirstLine(FileChannel channel) throws IOException{
+		ByteBuffer buf = ByteBuffer.allocate(1 << 12);
+		byte[] res = new byte[0];
+		long cur = 0;
+		while(true){
+			buf.clear();
+			int read = channel.read(buf, cur);
+			if(read <= 0) break;
+			int i = 0;
+			while(i < read && buf.get(i) != '\n') i++;
+			int old = res.length;
+			res = Arrays.copyOf(res, old + i);
+			buf.position(0);
+			buf.get(res, old, i);
+			if(i < read) break;
+			cur += read;
+		}
+		if(res.length == 0) throw new IOException("Empty first line");
+		int len = res.length;
+		if(res[len - 1] == '\r') return Arrays.copyOf(res, len - 1);
+		return res;
+	}
+
+	private String[] splitLine(byte[] line){
+		line = line.clone(); // quoted fields are unescaped in place
+		int[] range = new int[2];
+		String[] res = new String[line.length + 1];
+		int nFields = 0, s = 0;
+		while(s >= 0){
+			s = nextField(line, s, line.length, range);
+			res[nFields++] = new String(line, range[0], range[1] - range[0], StandardCharsets.UTF_8);
+		}
+		return Arrays.copyOf(res, nFields);
+	}
+
+	/**
+	 * @return the number of non empty lines in <code>buf[0 ; len[</code>
+	 */
+	private static int countRows(byte[] buf, int len){
+		int res = 0, lineStart = 0;
+		for(int i = 0; i <= len; i++){
+			if(i == len || buf[i] == '\n'){
+				int e = i;
+				if(e > lineStart && buf[e - 1] == '\r') e--;
+				if(e > lineStart) res++;
+				lineStart = i + 1;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Finds the field starting at <code>s</code> in the line <code>b[s ; e[</code>.
+	 * A quoted field is unescaped in place.
+	 * @param range receives the bounds of the (trimmed) content of the field
+	 * @return the start of the next field, or -1 if it is the last field of the line
+	 */
+	private int nextField(byte[] b, int s, int e, int[] range){
+		while(s < e && b[s] == ' ' && separator != ' ') s++;
+		int i;
+		if(s < e && b[s] == '"'){
+			int w = s;
+			i = s + 1;
+			while(true){
+				if(i >= e) throw new RuntimeException("Unterminated quoted field");
+				if(b[i] == '"'){
+					if(i + 1 < e && b[i + 1] == '"'){
+						b[w++] = '"';
+						i += 2;
+					}
+					else{
+						i++;
+						break;
+					}
+				}
+				else{
+					b[w++] = b[i++];
+				}
+			}
+			range[0] = s;
+			range[1] = w;
+			while(i < e && b[i] != separator) i++;
+		}
+		else{
+			i = s;
+			while(i < e && b[i] != separator) i++;
+			int fe = i;
+			while(fe > s && b[fe - 1] == ' ') fe--;
+			range[0] = s;
+			range[1] = fe;
+		}
+		return i < e ? i + 1 : -1;
+	}
+
+	private void parseChunk(byte[] buf, int len, ChunkState state, double[][] cols, int[] labels, int nCol){
+		NumberParser parser = new NumberParser();
+		int[] range = new int[2];
+		int row = state.from, lineStart = 0;
+		while(lineStart < len){
+			int lineEnd = lineStart;
+			while(lineEnd < len && buf[lineEnd] != '\n') lineEnd++;
+			int e = lineEnd;
+			if(e > lineStart && buf[e - 1] == '\r') e--;
+			if(e > lineStart){
+				int s = lineStart, c = 0;
+				while(s >= 0){
+					if(c == nCol) throw new RuntimeException("Row "+row+" has more than "+nCol+" fields");
+					s = nextField(buf, s, e, range);
+					if(range[0] == range[1]) throw new RuntimeException("Missing value in column "+c+" of row "+row);
+					if(c == labelCol){
+						if(!parser.parse(buf, range[0], range[1])) state.numericLabels = false;
+						labels[row] = getCode(state.labelDict, new String(buf, range[0], range[1] - range[0], StandardCharsets.UTF_8));
+					}
+					else{
+						setValue(buf, range, parser, state, cols[getFeature(c)], getFeature(c), row);
+					}
+					c++;
+				}
+				if(c != nCol) throw new RuntimeException("Row "+row+" has "+c+" fields instead of "+nCol);
+				row++;
+			}
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	private static void setValue(byte[] buf, int[] range, NumberParser parser, ChunkState state, double[] col, int j, int row){
+		HashMap<String, Integer> dict = state.dicts[j];
+		if(dict == null){
+			if(parser.parse(buf, range[0], range[1])){
+				col[row] = parser.value;
+				return;
+			}
+			// first non numerical value: the previous values of the chunk are read again as text (see parseNumbersAsText)
+			dict = new HashMap<String, Integer>();
+			state.dicts[j] = dict;
+			state.firstTextRow[j] = row;
+		}
+		col[row] = getCode(dict, new String(buf, range[0], range[1] - range[0], StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Encodes as text the values of the categorical variables which were parsed as numbers in a chunk,
+	 * <i>i.e.</i> those before the first non numerical value of the variable in the chunk.
+	 */
+	private void parseNumbersAsText(byte[] buf, int len, ChunkState state, boolean[] isCatCol, double[][] cols, int nCol){
+		int[] range = new int[2];
+		int row = state.from, lineStart = 0;
+		while(lineStart < len){
+			int lineEnd = lineStart;
+			while(lineEnd < len && buf[lineEnd] != '\n') lineEnd++;
+			int e = lineEnd;
+			if(e > lineStart && buf[e - 1] == '\r') e--;
+			if(e > lineStart){
+				int s = lineStart, c = 0;
+				while(s >= 0){
+					s = nextField(buf, s, e, range);
+					if(c != labelCol){
+						int j = getFeature(c);
+						if(isCatCol[j] && row < state.getFirstTextRow(j)){
+							if(state.dicts[j] == null){
+								state.dicts[j] = new HashMap<String, Integer>();
+								state.firstTextRow[j] = state.to;
+							}
+							cols[j][row] = getCode(state.dicts[j], new String(buf, range[0], range[1] - range[0], StandardCharsets.UTF_8));
+						}
+					}
+					c++;
+				}
+				row++;
+			}
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	private static int getCode(HashMap<String, Integer> dict, String level){
+		Integer code = dict.get(level);
+		if(code == null){
+			code = dict.size();
+			dict.put(level, code);
+		}
+		return code;
+	}
+
+	/**
+	 * Replaces the chunk-local codes of categorical variables by the indices of their levels
+	 */
+	private void encodeLevels(final ChunkState[] states, final double[][] cols){
+		levels = new String[cols.length][];
+		Parallel.forEachBlock(cols.length, nThreads, new Parallel.Block() {
+			@Override
+			public void run(int from, int to) {
+				for(int j = from; j < to; j++){
+					boolean isCat = false;
+					for(ChunkState s : states) isCat |= s.dicts[j] != null;
+					if(!isCat) continue;
+
+					double[] col = cols[j];
+					TreeSet<String> all = new TreeSet<String>();
+					for(ChunkState s : states){
+						if(s.dicts[j] != null) all.addAll(s.dicts[j].keySet()); // all the values of the chunk, or the chunk is empty
+					}
+					String[] lvl = all.toArray(new String[all.size()]);
+					HashMap<String, Integer> global = new HashMap<String, Integer>();
+					for(int k = 0; k < lvl.length; k++) global.put(lvl[k], k);
+
+					for(ChunkState s : states){
+						if(s.dicts[j] == null) continue;
+						int[] toGlobal = getTranslation(s.dicts[j], global);
+						for(int i = s.from; i < s.to; i++) col[i] = toGlobal[(int) col[i]];
+					}
+					levels[j] = lvl;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Replaces the chunk-local codes of the labels by the indices of the sorted labels
+	 */
+	private void encodeLabels(ChunkState[] states, int[] labels){
+		boolean numeric = true;
+		TreeSet<String> all = new TreeSet<String>();
+		for(ChunkState s : states){
+			numeric &= s.numericLabels;
+			all.addAll(s.labelDict.keySet());
+		}
+		labelLevels = all.toArray(new String[all.size()]);
+		if(numeric){
+			final NumberParser parser = new NumberParser();
+			final double[] values = new double[labelLevels.length];
+			for(int k = 0; k < values.length; k++){
+				byte[] b = labelLevels[k].getBytes(StandardCharsets.UTF_8);
+				parser.parse(b, 0, b.length);
+				values[k] = parser.value;
+			}
+			Integer[] order = new Integer[values.length];
+			for(int k = 0; k < order.length; k++) order[k] = k;
+			Arrays.sort(order, new java.util.Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					return Double.compare(values[a], values[b]); // stable sort: equal numbers stay in alphabetical order
+				}
+			});
+			String[] sorted = new String[order.length];
+			for(int k = 0; k < order.length; k++) sorted[k] = labelLevels[order[k]];
+			labelLevels = sorted;
+		}
+
+		HashMap<String, Integer> global = new HashMap<String, Integer>();
+		for(int k = 0; k < labelLevels.length; k++) global.put(labelLevels[k], k);
+		for(ChunkState s : states){
+			int[] toGlobal = getTranslation(s.labelDict, global);
+			for(int i = s.from; i < s.to; i++) labels[i] = toGlobal[labels[i]];
+		}
+	}
+
+	private static int[] getTranslation(HashMap<String, Integer> local, HashMap<String, Integer> global){
+		int[] res = new int[local.size()];
+		for(java.util.Map.Entry<String, Integer> entry : local.entrySet()) res[entry.getValue()] = global.get(entry.getKey());
+		return res;
+	}
+
+	/**
+	 * Parses decimal numbers from bytes without creating a String in the common case.
+	 * Numbers with at most 15 significant digits and a decimal exponent of at most 22 (in absolute value)
+	 * are exactly rounded with a single floating point operation, the other ones are delegated to <code>Double.parseDouble</code>.
+	 */
+	private static final class NumberParser {
+		double value;
+
+		/**
+		 * @return <code>true</code> if <code>b[s ; e[</code> is a number, which is then stored in <code>value</code>
+		 */
+		boolean parse(byte[] b, int s, int e){
+			int i = s;
+			boolean neg = false;
+			if(i < e && (b[i] == '-' || b[i] == '+')){
+				neg = b[i] == '-';
+				i++;
+			}
+			long m = 0;
+			int digits = 0, exp = 0;
+			boolean any = false;
+			while(i < e && b[i] >= '0' && b[i] <= '9'){
+				any = true;
+				if(m != 0 || b[i] != '0'){
+					if(++digits > 15) return parseSlow(b, s, e);
+					m = m * 10 + (b[i] - '0');
+				}
+				i++;
+			}
+			if(i < e && b[i] == '.'){
+				i++;
+				while(i < e && b[i] >= '0' && b[i] <= '9'){
+					any = true;
+					if(m != 0 || b[i] != '0'){
+						if(++digits > 15) return parseSlow(b, s, e);
+						m = m * 10 + (b[i] - '0');
+					}
+					exp--;
+					i++;
+				}
+			}
+			if(!any) return false;
+			if(i < e && (b[i] == 'e' || b[i] == 'E')){
+				i++;
+				boolean negExp = false;
+				if(i < e && (b[i] == '-' || b[i] == '+')){
+					negExp = b[i] == '-';
+					i++;
+				}
+				int ev = 0;
+				boolean anyExp = false;
+				while(i < e && b[i] >= '0' && b[i] <= '9'){
+					anyExp = true;
+					if(ev < 100000) ev = ev * 10 + (b[i] - '0');
+					i++;
+				}
+				if(!anyExp) return false;
+				exp += negExp ? -ev : ev;
+			}
+			if(i != e) return false;
+
+			double v;
+			if(m == 0) v = 0;
+			else if(exp >= 0 && exp < POW10.length) v = m * POW10[exp];
+			else if(exp < 0 && -exp < POW10.length) v = m / POW10[-exp];
+			else return parseSlow(b, s, e);
+			value = neg ? -v : v;
+			return true;
+		}
+
+		private boolean parseSlow(byte[] b, int s, int e){
+			try{
+				value = Double.parseDouble(new String(b, s, e - s, StandardCharsets.US_ASCII));
+				return true;
+			}catch(NumberFormatException ex){
+				return false;
+			}
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package be.uclouvain.mlg.jForest.data.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only view of a table serialized with <a href="https://google.github.io/flatbuffers/">FlatBuffers</a>,
+ * the format of the metadata of Arrow files. Only what is needed by {@link ArrowLoader} is implemented.
+ * Fields are identified by their index in the schema of the table.
+ */
+final class FlatTable {
+
+	private final ByteBuffer bb;
+	private final int pos;
+	private final int vtable, vtableLen;
+
+	/**
+	 * @param bb a little-endian buffer containing the table
+	 * @param pos the position of the table in <code>bb</code>
+	 */
+	private FlatTable(ByteBuffer bb, int pos){
+		this.bb = bb;
+		this.pos = pos;
+		this.vtable = pos - bb.getInt(pos);
+		this.vtableLen = bb.getShort(vtable) & 0xFFFF;
+	}
+
+	/**
+	 * @param bb a little-endian buffer starting with a serialized table
+	 * @return the root table of the buffer
+	 */
+	static FlatTable getRoot(ByteBuffer bb){
+		return new FlatTable(bb, bb.getInt(0));
+	}
+
+	/**
+	 * @return the position of the field in <code>bb</code>, or 0 if it is absent
+	 */
+	private int getFieldPos(int field){
+		int o = 4 + 2 * field;
+		if(o >= vtableLen) return 0;
+		int off = bb.getShort(vtable + o) & 0xFFFF;
+		return off == 0 ? 0 : pos + off;
+	}
+
+	private int deref(int p){
+		return p + bb.getInt(p);
+	}
+
+	boolean has(int field){
+		return getFieldPos(field) != 0;
+	}
+
+	long getLong(int field, long def){
+		int p = getFieldPos(field);
+		return p == 0 ? def : bb.getLong(p);
+	}
+
+	int getInt(int field, int def){
+		int p = getFieldPos(field);
+		return p == 0 ? def : bb.getInt(p);
+	}
+
+	int getShort(int field, int def){
+		int p = getFieldPos(field);
+		return p == 0 ? def : bb.getShort(p);
+	}
+
+	int getUByte(int field, int def){
+		int p = getFieldPos(field);
+		return p == 0 ? def : bb.get(p) & 0xFF;
+	}
+
+	boolean getBool(int field, boolean def){
+		int p = getFieldPos(field);
+		return p == 0 ? def : bb.get(p) != 0;
+	}
+
+	/**
+	 * @return the table referenced by the field (or the value of a union), <code>null</code> if it is absent
+	 */
+	FlatTable getTable(int field){
+		int p = getFieldPos(field);
+		return p == 0 ? null : new FlatTable(bb, deref(p));
+	}
+
+	String getString(int field){
+		int p = getFieldPos(field);
+		if(p == 0) return null;
+		int s = deref(p);
+		byte[] res = new byte[bb.getInt(s)];
+		for(int i = 0; i < res.length; i++) res[i] = bb.get(s + 4 + i);
+		return new String(res, StandardCharsets.UTF_8);
+	}
+
+	int getVectorLength(int field){
+		int p = getFieldPos(field);
+		return p == 0 ? 0 : bb.getInt(deref(p));
+	}
+
+	/**
+	 * @return the table at index <code>i</code> of a vector of tables
+	 */
+	FlatTable getTable(int field, int i){
+		int e = deref(getFieldPos(field)) + 4 + 4 * i;
+		return new FlatTable(bb, deref(e));
+	}
+
+	/**
+	 * Reads a long in a vector of structs
+	 * @param structSize the size of a struct in bytes
+	 * @param i the index of the struct in the vector
+	 * @param offset the offset of the long in the struct
+	 */
+	long getStructLong(int field, int structSize, int i, int offset){
+		return bb.getLong(deref(getFieldPos(field)) + 4 + structSize * i + offset);
+	}
+}
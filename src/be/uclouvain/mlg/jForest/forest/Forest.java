@@ -29,13 +29,22 @@ along with jForest.  If not, see <http://www.gnu.org/licenses/>.
 
 package be.uclouvain.mlg.jForest.forest;
 
+import java.util.Random;
+
 import be.uclouvain.mlg.jForest.data.Data;
 import be.uclouvain.mlg.jForest.importance.external.ExternalImportanceIF;
+import be.uclouvain.mlg.jForest.importance.shap.TreeShap;
+import be.uclouvain.mlg.jForest.proximity.SparseProximity;
 import be.uclouvain.mlg.jForest.importance.internal.InternalImportanceIF;
 import be.uclouvain.mlg.jForest.importance.internal.VariableCount;
+import be.uclouvain.mlg.jForest.importance.pdp.PartialDependence;
 import be.uclouvain.mlg.jForest.sampler.RandomSampler;
+import be.uclouvain.mlg.jForest.sampler.SeededSample;
 import be.uclouvain.mlg.jForest.sampler.SubsetSampler;
+import be.uclouvain.mlg.jForest.splitting.ReflectiveSplitterFactory;
 import be.uclouvain.mlg.jForest.splitting.Splitter;
+import be.uclouvain.mlg.jForest.splitting.SplitterFactoryIF;
+import be.uclouvain.mlg.jForest.tools.Parallel;
 import be.uclouvain.mlg.jForest.tree.Tree;
 import be.uclouvain.mlg.jForest.tree.TreeIF;
 
@@ -46,10 +55,12 @@ public class Forest {
 
 	private Data d;
 	private RandomSampler bootstrapSampler, mtrySampler;
-	private Class<? extends Splitter> nodeSplitterClass;
+	private SplitterFactoryIF splitterFactory;
 	private final int mtry, maxDepth;
+	private final boolean skipConstantVars;
 	private InternalImportanceIF inImp;
 	private Tree[] trees;
+	private int nThreads = Parallel.getDefaultNbThreads();
 	
 	/**
 	 * Grow a forest with the corresponding specifications
@@ -57,19 +68,53 @@ public class Forest {
 	 * @param ntree                the number of trees
 	 * @param bootstrapSampler     the sampler that randomly selects training instances for growing each tree
 	 * @param mtrySampler          the sampler that randomly selects the candidate variables for splitting
-	 * @param nodeSplitterClass    the class of the objects that perform variable based splits
+	 * @param nodeSplitterClass    the class of the objects that perform variable based splits, created with their default constructor
 	 * @param inImp                the aggregator of variable importance computed during the tree growing process
 	 * @param maxDepth             the maximal depth of the decision trees. A negative value will cause to fully grow the trees.
 	 */
 	public Forest(Data d, int ntree, RandomSampler bootstrapSampler, SubsetSampler mtrySampler, Class<? extends Splitter> nodeSplitterClass, InternalImportanceIF inImp, int maxDepth) {
+		this(d, ntree, bootstrapSampler, mtrySampler, new ReflectiveSplitterFactory(nodeSplitterClass), inImp, maxDepth);
+	}
+	
+	/**
+	 * Grow a forest with the corresponding specifications
+	 * @param d                    the training data
+	 * @param ntree                the number of trees
+	 * @param bootstrapSampler     the sampler that randomly selects training instances for growing each tree
+	 * @param mtrySampler          the sampler that randomly selects the candidate variables for splitting
+	 * @param splitterFactory      the factory of the objects that perform variable based splits (<i>e.g.</i> a configured splitter used as a prototype).
+	 *                             One splitter is created to grow all the trees.
+	 * @param inImp                the aggregator of variable importance computed during the tree growing process
+	 * @param maxDepth             the maximal depth of the decision trees. A negative value will cause to fully grow the trees.
+	 */
+	public Forest(Data d, int ntree, RandomSampler bootstrapSampler, SubsetSampler mtrySampler, SplitterFactoryIF splitterFactory, InternalImportanceIF inImp, int maxDepth) {
+		this(d, ntree, bootstrapSampler, mtrySampler, splitterFactory, inImp, maxDepth, false);
+	}
+	
+	/**
+	 * Grow a forest with the corresponding specifications
+	 * @param d                    the training data
+	 * @param ntree                the number of trees
+	 * @param bootstrapSampler     the sampler that randomly selects training instances for growing each tree
+	 * @param mtrySampler          the sampler that randomly selects the candidate variables for splitting
+	 * @param splitterFactory      the factory of the objects that perform variable based splits (<i>e.g.</i> a configured splitter used as a prototype).
+	 *                             One splitter is created to grow all the trees.
+	 * @param inImp                the aggregator of variable importance computed during the tree growing process
+	 * @param maxDepth             the maximal depth of the decision trees. A negative value will cause to fully grow the trees.
+	 * @param skipConstantVars     <code>true</code> to skip, in the descendants of a node, the candidate variables found constant in it, which is faster
+	 *                             on data with many constant variables. The random draws of the candidate variables then differ from the ones of
+	 *                             <code>false</code> (default), and so do the trees.
+	 */
+	public Forest(Data d, int ntree, RandomSampler bootstrapSampler, SubsetSampler mtrySampler, SplitterFactoryIF splitterFactory, InternalImportanceIF inImp, int maxDepth, boolean skipConstantVars) {
 		this.d = d;
 		this.trees = new Tree[ntree];
 		this.bootstrapSampler = bootstrapSampler;
 		this.mtrySampler = mtrySampler;
 		this.mtry = mtrySampler.getMtry();
-		this.nodeSplitterClass = nodeSplitterClass;
+		this.splitterFactory = splitterFactory;
 		this.inImp = inImp;
 		this.maxDepth = maxDepth;
+		this.skipConstantVars = skipConstantVars;
 		
 		grow();
 	}
@@ -84,28 +129,40 @@ public class Forest {
 			throw up; // :-)
 		}
 		
+		Splitter splitter = newSplitter(); // reused for all the nodes of all the trees
 		for(int i = 0; i < trees.length; i++){
-			int[][] sampling = getSampling();
+			// only the seed of the sample is kept in the tree, the OOB is regenerated from it when needed
+			long seed;
+			int[] inTree;
+			do{
+				seed = nextSeed();
+				inTree = bootstrapSampler.getSample(d.getRowRange(), seed)[0];
+			}while(d.getNumberOfClassesIn(inTree)<=1); // we want at least 2 classes in a bootstrap sample
 			
-			trees[i] = new Tree(mtrySampler,nodeSplitterClass,d,sampling[0],sampling[1],inImp,new VariableCount(d.getP()),maxDepth);
+			trees[i] = new Tree(mtrySampler,splitter,d,inTree,new SeededSample(bootstrapSampler,d.getRowRange(),seed),inImp,new VariableCount(d.getP()),maxDepth,skipConstantVars);
 			trees[i].grow();
+			trees[i].numberLeaves(0);
+		}
+	}
+
+	/**
+	 * @return a new splitter of the factory
+	 */
+	private Splitter newSplitter(){
+		Splitter res = splitterFactory.newSplitter();
+		if(splitterFactory instanceof Splitter && res.getClass() != splitterFactory.getClass()){
+			RuntimeException up = new RuntimeException(splitterFactory.getClass().getName()+" does not override newSplitter().");
+			throw up;
 		}
+		return res;
 	}
 
 	/**
-	 * Ensures that at least two classes are present in the sampled instances
-	 * @return an array of 2 elements :
-	 *             <ol>
-	 *                 <li>an array containing the indices of points in the sample</li>
-	 *                 <li>an array containing the indices of points in the OOB</li>
-	 *             </ol>
+	 * @return a seed drawn from the random number generator of the bootstrap sampler (0 if the sampler is not random)
 	 */
-	private int[][] getSampling() {
-		int[][] sampling;
-		do{
-			sampling = bootstrapSampler.getSample(d.getRowRange());
-		}while(d.getNumberOfClassesIn(sampling[0])<=1); // we want at least 2 classes in a bootstrap sample
-		return sampling;
+	private long nextSeed() {
+		Random rnd = bootstrapSampler.getRandom();
+		return rnd == null ? 0 : rnd.nextLong();
 	}
 	
 	/**
@@ -115,17 +172,14 @@ public class Forest {
 	 */
 	public int[] predict(Data newdata){
 		
-		if(d.getP() != newdata.getP()){
-			RuntimeException up = new RuntimeException("The number of cols of newdata ("+newdata.getP()+") does not correspond to the one of training data ("+d.getP()+")");
-			throw up;
-		}
+		checkNbCols(newdata);
 		
 		int[] res = new int[newdata.getN()];
 		
 		for(int i = 0; i < newdata.getN(); i++){ // for every new sample
 			int[] classVote = new int[d.getNumberOfClasses()];
 			for(TreeIF t : trees){
-				classVote[t.predict(newdata.getData()[i])]++;
+				classVote[t.getLeaf(newdata, i).getClassToPredict()]++;
 			}
 			int bestScore = -1;
 			for(int curClass = 0; curClass < classVote.length; curClass++){ // pr chaque classe 
@@ -141,6 +195,109 @@ public class Forest {
 	}
 	
 	
+	/**
+	 * Computes the leaf reached by each sample in each tree.
+	 * The leaves of a tree are numbered from 0 in depth-first order, once the tree is grown.
+	 * The samples are processed in parallel blocks.
+	 * @param newdata the samples to send down the trees
+	 * @return the compact matrix of the leaf ids of each sample in each tree
+	 */
+	public LeafIndices apply(final Data newdata){
+		checkNbCols(newdata);
+		int[] nLeaves = new int[trees.length];
+		for(int t = 0; t < trees.length; t++) nLeaves[t] = trees[t].getNbLeaves();
+		final LeafIndices res = new LeafIndices(newdata.getN(), nLeaves);
+		Parallel.forEachBlock(newdata.getN(), nThreads, new Parallel.Block() {
+			@Override
+			public void run(int from, int to) {
+				for(int i = from; i < to; i++){
+					for(int t = 0; t < trees.length; t++) res.set(i, t, trees[t].getLeaf(newdata, i).getLeafId());
+				}
+			}
+		});
+		return res;
+	}
+	
+	/**
+	 * Records the leaf reached by each sample in each tree.
+	 * The leaves of a tree are numbered from 0 in depth-first order.
+	 * @param newdata the samples to send down the trees
+	 * @return <code>res[t][i]</code> is the id of the leaf of tree <i>t</i> reached by sample <i>i</i>
+	 * @deprecated use <code>apply(Data newdata)</code>, which stores the same ids in a compact matrix
+	 */
+	@Deprecated
+	public int[][] getLeafIds(Data newdata){
+		LeafIndices leaves = apply(newdata);
+		int[][] res = new int[trees.length][newdata.getN()];
+		for(int t = 0; t < trees.length; t++){
+			for(int i = 0; i < res[t].length; i++) res[t][i] = leaves.get(i, t);
+		}
+		return res;
+	}
+	
+	/**
+	 * Computes the proximities between the samples of <code>newdata</code> (see {@link SparseProximity}).
+	 * @param newdata the samples whose proximities are computed (<i>e.g.</i> the training data)
+	 * @param topK the maximal number of neighbours kept for each sample. A value &lt;= 0 keeps all the non-zero proximities.
+	 * @return the sparse proximity matrix
+	 */
+	public SparseProximity getProximity(Data newdata, int topK){
+		return new SparseProximity(apply(newdata), topK, nThreads);
+	}
+	
+	/**
+	 * Computes the SHAP values of new samples with the TreeSHAP algorithm (see {@link TreeShap}).
+	 * The explained output is the fraction of trees voting for <code>classOfInterest</code>.
+	 * @param newdata the samples to explain
+	 * @param classOfInterest the class label whose vote is explained
+	 * @return a <i>n</i> x <i>p</i> matrix containing the contribution of each variable for each sample of <code>newdata</code>
+	 */
+	public double[][] getShapValues(Data newdata, int classOfInterest){
+		checkNbCols(newdata);
+		return new TreeShap(trees, d.getP(), classOfInterest).getShapValues(newdata, nThreads);
+	}
+	
+	/**
+	 * Computes the SHAP interaction values of new samples with the TreeSHAP algorithm (see {@link TreeShap}).
+	 * @param newdata the samples to explain
+	 * @param classOfInterest the class label whose vote is explained
+	 * @return a <i>n</i> x <i>p</i> x <i>p</i> array containing the interaction values of each pair of variables for each sample of <code>newdata</code>
+	 */
+	public double[][][] getShapInteractionValues(Data newdata, int classOfInterest){
+		checkNbCols(newdata);
+		return new TreeShap(trees, d.getP(), classOfInterest).getInteractionValues(newdata, nThreads);
+	}
+	
+	/**
+	 * @param classOfInterest a class label
+	 * @return the expected fraction of trees voting for <code>classOfInterest</code>, <i>i.e.</i> the base value of the SHAP values
+	 */
+	public double getShapExpectedValue(int classOfInterest){
+		return new TreeShap(trees, d.getP(), classOfInterest).getExpectedValue();
+	}
+	
+	/**
+	 * Computes the partial dependence of the class votes on a set of variables (see {@link PartialDependence}).
+	 * @param vars the column indices of the target variables
+	 * @param grid <code>grid[g][k]</code> is the value of variable <code>vars[k]</code> in the <i>g</i>-th grid point
+	 * @return <code>res[g][c]</code> is the partial dependence of the fraction of trees voting for class <i>c</i> at the <i>g</i>-th grid point
+	 */
+	public double[][] getPartialDependence(int[] vars, double[][] grid){
+		return new PartialDependence(trees, d.getNumberOfClasses()).compute(vars, grid, nThreads);
+	}
+	
+	/**
+	 * Computes the partial dependence of the class votes on one variable
+	 * @param var the column index of the target variable
+	 * @param values the values of <code>var</code> on which the partial dependence is evaluated
+	 * @return <code>res[g][c]</code> is the partial dependence of the fraction of trees voting for class <i>c</i> when <code>var</code> takes value <code>values[g]</code>
+	 */
+	public double[][] getPartialDependence(int var, double[] values){
+		double[][] grid = new double[values.length][1];
+		for(int g = 0; g < values.length; g++) grid[g][0] = values[g];
+		return getPartialDependence(new int[]{var}, grid);
+	}
+	
 	/**
 	 * Returns the importance of each variable as an aggregation of their importance in each split
 	 * @return variable importance vector
@@ -162,6 +319,14 @@ public class Forest {
 		return eImp.getImportances();
 	}
 	
+	/**
+	 * Sets the number of threads used to process the samples given to the forest after it is grown
+	 * @param nThreads a strictly positive number of threads
+	 */
+	public void setNbThreads(int nThreads){
+		this.nThreads = nThreads;
+	}
+	
 	/**
 	 * @return the number of trees in the forest
 	 */
@@ -180,6 +345,13 @@ public class Forest {
 		return tmp / getNTree();
 	}
 	
+	private void checkNbCols(Data newdata){
+		if(d.getP() != newdata.getP()){
+			RuntimeException up = new RuntimeException("The number of cols of newdata ("+newdata.getP()+") does not correspond to the one of training data ("+d.getP()+")");
+			throw up;
+		}
+	}
+	
 	@Override
 	public String toString(){
 		return toString(false);
@@ -0,0 +1,145 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.forest;
+
+/**
+ * Compact matrix of the leaves reached by <i>n</i> samples in each tree of a forest.
+ * The ids are stored row-major (all the trees of a sample are contiguous) in a single array,
+ * as unsigned <code>short</code> when every tree has at most 65536 leaves, as <code>int</code> otherwise.
+ */
+public class LeafIndices {
+
+	private static final int MAX_SHORT_LEAVES = 1 << 16;
+
+	private final int n, ntree;
+	private final int[] nLeaves;
+	private final short[] shortIds;
+	private final int[] intIds;
+
+	/**
+	 * Allocates the storage for the leaf ids of <code>n</code> samples
+	 * @param n the number of samples
+	 * @param nLeaves <code>nLeaves[t]</code> is the number of leaves of tree <i>t</i>
+	 */
+	LeafIndices(int n, int[] nLeaves){
+		this.n = n;
+		this.ntree = nLeaves.length;
+		this.nLeaves = nLeaves;
+
+		if(((long) n) * ntree > Integer.MAX_VALUE - 8){
+			RuntimeException up = new RuntimeException("Too many leaf ids to store ("+n+" samples x "+ntree+" trees), use fewer samples at once");
+			throw up;
+		}
+
+		int maxLeaves = 0;
+		for(int l : nLeaves) maxLeaves = Math.max(maxLeaves, l);
+		if(maxLeaves <= MAX_SHORT_LEAVES){
+			shortIds = new short[n * ntree];
+			intIds = null;
+		}
+		else{
+			shortIds = null;
+			intIds = new int[n * ntree];
+		}
+	}
+
+	/**
+	 * @param i the index of a sample
+	 * @param t the index of a tree
+	 * @param leafId the id of the leaf of tree <i>t</i> reached by sample <i>i</i>
+	 */
+	void set(int i, int t, int leafId){
+		if(shortIds != null) shortIds[i * ntree + t] = (short) leafId;
+		else intIds[i * ntree + t] = leafId;
+	}
+
+	/**
+	 * @param i the index of a sample
+	 * @param t the index of a tree
+	 * @return the id, in <i>[0 ; getNbLeaves(t)[</i>, of the leaf of tree <i>t</i> reached by sample <i>i</i>
+	 */
+	public int get(int i, int t){
+		if(shortIds != null) return shortIds[i * ntree + t] & 0xFFFF;
+		return intIds[i * ntree + t];
+	}
+
+	/**
+	 * @return the number of samples
+	 */
+	public int getN(){
+		return n;
+	}
+
+	/**
+	 * @return the number of trees
+	 */
+	public int getNTree(){
+		return ntree;
+	}
+
+	/**
+	 * @param t the index of a tree
+	 * @return the number of leaves of tree <i>t</i>
+	 */
+	public int getNbLeaves(int t){
+		return nLeaves[t];
+	}
+
+	/**
+	 * @return <code>true</code> iff the ids are stored as unsigned <code>short</code> (see <code>getShortIds()</code>)
+	 */
+	public boolean isShort(){
+		return shortIds != null;
+	}
+
+	/**
+	 * @return the row-major array of ids stored as unsigned <code>short</code> (<code>id = s & 0xFFFF</code>) or <code>null</code> if the ids are stored as <code>int</code>
+	 */
+	public short[] getShortIds(){
+		return shortIds;
+	}
+
+	/**
+	 * @return the row-major array of ids stored as <code>int</code> or <code>null</code> if the ids are stored as <code>short</code>
+	 */
+	public int[] getIntIds(){
+		return intIds;
+	}
+
+	/**
+	 * @return a row-major copy of the ids as <code>int</code>: the id of sample <i>i</i> in tree <i>t</i> is at position <i>i * ntree + t</i>
+	 */
+	public int[] toIntArray(){
+		if(intIds != null) return intIds.clone();
+		int[] res = new int[shortIds.length];
+		for(int k = 0; k < res.length; k++) res[k] = shortIds[k] & 0xFFFF;
+		return res;
+	}
+}
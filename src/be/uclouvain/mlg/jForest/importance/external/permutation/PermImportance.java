@@ -86,22 +86,23 @@ public abstract class PermImportance<E,I> implements ExternalImportanceIF<E> {
 			varInTree.add(i);
 		}
 		
+		int[] oobIds = tree.getOob(); // regenerated by the tree, hence fetched once
+		double[][] oob = getOob(oobIds);
+		
 		for(int i = 0; i < d.getP(); i++){ // for each variable
-			double[][] oob = getOob(tree.getOob());
-			
 			double[][] permOob = null;
-			if(varInTree.contains(i)) permOob = getPermutedOOB(i, tree.getOob());
+			if(varInTree.contains(i)) permOob = getPermutedOOB(i, oobIds);
 			
 			permutationIndex.reInit();
 			
-			for(int s = 0; s < tree.getOob().length; s++){ // for each OOB sample // tree.getOob()[s] is the true index in data of sample oob[s]
+			for(int s = 0; s < oobIds.length; s++){ // for each OOB sample // oobIds[s] is the true index in data of sample oob[s]
 				int pred = tree.predict(oob[s]);
 				if(varInTree.contains(i)){
 					int predPerm = tree.predict(permOob[s]);
-					permutationIndex.addPoint(pred, predPerm, d.getLabels()[tree.getOob()[s]], true, tree.getOob()[s]);
+					permutationIndex.addPoint(pred, predPerm, d.getLabels()[oobIds[s]], true, oobIds[s]);
 				}
 				else{
-					permutationIndex.addPoint(pred, pred, d.getLabels()[tree.getOob()[s]], false, tree.getOob()[s]);
+					permutationIndex.addPoint(pred, pred, d.getLabels()[oobIds[s]], false, oobIds[s]);
 				}
 			}
 			
@@ -138,7 +139,7 @@ public abstract class PermImportance<E,I> implements ExternalImportanceIF<E> {
 	private double[][] getOob(int[] oob){
 
 		double[][] res = new double[oob.length][];
-		for(int i = 0; i < oob.length; i++) res[i] = d.getData()[oob[i]];
+		for(int i = 0; i < oob.length; i++) res[i] = d.getRow(oob[i]);
 
 		return res;
 	}
@@ -152,16 +153,14 @@ public abstract class PermImportance<E,I> implements ExternalImportanceIF<E> {
 		double[][] permuted = new double[oob.length][d.getP()];
 
 		for(int i = 0; i < permuted.length; i++){
-			for(int j = 0; j < permuted[i].length; j++){
-				permuted[i][j] = d.getData()[oob[i]][j];
-			}
+			System.arraycopy(d.getRow(oob[i]), 0, permuted[i], 0, permuted[i].length);
 		}
 
 		ArrayList<Integer> shuffledId = new ArrayList<Integer>(oob.length);
 		for(int i : oob) shuffledId.add(i);
 		Collections.shuffle(shuffledId,rnd);
 
-		for(int i = 0; i < permuted.length; i++) permuted[i][permFeatId] = d.getData()[shuffledId.get(i)][permFeatId];
+		for(int i = 0; i < permuted.length; i++) permuted[i][permFeatId] = d.getValue(shuffledId.get(i),permFeatId);
 
 		return permuted;
 	}
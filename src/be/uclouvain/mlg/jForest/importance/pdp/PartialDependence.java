@@ -0,0 +1,114 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.importance.pdp;
+
+import be.uclouvain.mlg.jForest.splitting.split.UnivariateSplit;
+import be.uclouvain.mlg.jForest.tools.Parallel;
+import be.uclouvain.mlg.jForest.tree.Leaf;
+import be.uclouvain.mlg.jForest.tree.Tree;
+import be.uclouvain.mlg.jForest.tree.TreeIF;
+
+/**
+ * Computes the partial dependence of the class votes of a tree ensemble on a set of target variables
+ * with the weighted tree traversal described in
+ * Friedman, J. H. (2001). Greedy function approximation: a gradient boosting machine. Annals of Statistics, 29(5), 1189–1232.
+ * <p>
+ * For each grid point, a tree is traversed once: a node splitting on a target variable sends the grid point to a single child,
+ * any other node sends it to all its children with weights proportional to their number of training samples.
+ * The cost of a grid point is thus independent of the number of samples.
+ * </p>
+ */
+public class PartialDependence {
+
+	private final TreeIF[] trees;
+	private final int nClasses;
+
+	/**
+	 * @param trees the grown trees of the ensemble
+	 * @param nClasses the number of classes
+	 */
+	public PartialDependence(TreeIF[] trees, int nClasses){
+		this.trees = trees;
+		this.nClasses = nClasses;
+	}
+
+	/**
+	 * Computes the partial dependence on each point of a grid
+	 * @param vars the column indices of the target variables
+	 * @param grid <code>grid[g][k]</code> is the value of variable <code>vars[k]</code> in the <i>g</i>-th grid point
+	 * @param nThreads the number of threads among which the grid points are split
+	 * @return <code>res[g][c]</code> is the partial dependence of the fraction of trees voting for class <i>c</i> at the <i>g</i>-th grid point
+	 */
+	public double[][] compute(final int[] vars, final double[][] grid, int nThreads){
+		for(double[] point : grid){
+			if(point.length != vars.length) throw new RuntimeException("Each grid point should contain "+vars.length+" values");
+		}
+
+		final double[][] res = new double[grid.length][];
+		Parallel.forEachBlock(grid.length, nThreads, new Parallel.Block() {
+			@Override
+			public void run(int from, int to) {
+				for(int g = from; g < to; g++){
+					double[] votes = new double[nClasses];
+					for(TreeIF t : trees) addWeightedVotes(t, vars, grid[g], 1, votes);
+					for(int c = 0; c < nClasses; c++) votes[c] /= trees.length;
+					res[g] = votes;
+				}
+			}
+		});
+		return res;
+	}
+
+	private void addWeightedVotes(TreeIF node, int[] vars, double[] values, double weight, double[] votes){
+		if(node instanceof Leaf){
+			votes[((Leaf) node).getClassToPredict()] += weight;
+			return;
+		}
+
+		Tree t = (Tree) node;
+		TreeIF[] children = t.getSubTrees();
+		if(children.length == 1){ // no split in this node
+			addWeightedVotes(children[0], vars, values, weight, votes);
+			return;
+		}
+
+		UnivariateSplit split = t.getSplit();
+		for(int k = 0; k < vars.length; k++){
+			if(vars[k] == split.getVarId()){
+				addWeightedVotes(children[split.getChildIdFor(values[k])], vars, values, weight, votes);
+				return;
+			}
+		}
+
+		for(TreeIF child : children){
+			addWeightedVotes(child, vars, values, weight * child.getNbSamples() / t.getNbSamples(), votes);
+		}
+	}
+}
@@ -0,0 +1,313 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.importance.shap;
+
+import java.util.TreeSet;
+
+import be.uclouvain.mlg.jForest.data.Data;
+import be.uclouvain.mlg.jForest.splitting.split.UnivariateSplit;
+import be.uclouvain.mlg.jForest.tools.Parallel;
+import be.uclouvain.mlg.jForest.tree.Leaf;
+import be.uclouvain.mlg.jForest.tree.Tree;
+import be.uclouvain.mlg.jForest.tree.TreeIF;
+
+/**
+ * Computes exact SHAP values of a tree ensemble with the polynomial time TreeSHAP algorithm described in
+ * Lundberg, S. M., Erion, G., Chen, H., DeGrave, A., Prutkin, J. M., Nair, B., Katz, R., Himmelfarb, J., Bansal, N. and Lee, S.-I. (2020).
+ * From local explanations to global understanding with explainable AI for trees. Nature Machine Intelligence, 2(1), 56–67.
+ * <p>
+ * The explained output is the fraction of trees that vote for a class of interest.
+ * Conditional expectations are estimated from the number of training samples that reached each node.
+ * For a sample <i>x</i>, <code>getExpectedValue()</code> plus the sum of the SHAP values of <i>x</i> equals the fraction of trees predicting the class of interest for <i>x</i>.
+ * </p>
+ */
+public class TreeShap {
+
+	private final TreeIF[] trees;
+	private final int p;
+	private final int classOfInterest;
+	private final int[][] featuresOfTree;
+	private final int maxDepth;
+
+	/**
+	 * @param trees the grown trees of the ensemble
+	 * @param p the number of variables
+	 * @param classOfInterest the class whose vote fraction is explained
+	 */
+	public TreeShap(TreeIF[] trees, int p, int classOfInterest){
+		this.trees = trees;
+		this.p = p;
+		this.classOfInterest = classOfInterest;
+
+		featuresOfTree = new int[trees.length][];
+		int depth = 0;
+		for(int t = 0; t < trees.length; t++){
+			TreeSet<Integer> feats = new TreeSet<Integer>();
+			collectFeatures(trees[t], feats);
+			featuresOfTree[t] = new int[feats.size()];
+			int c = 0;
+			for(int f : feats) featuresOfTree[t][c++] = f;
+			depth = Math.max(depth, trees[t].getDepth());
+		}
+		maxDepth = depth;
+	}
+
+	/**
+	 * @return the average over all trees of the expected vote for the class of interest
+	 */
+	public double getExpectedValue(){
+		double res = 0;
+		for(TreeIF t : trees) res += getExpectedValue(t);
+		return res / trees.length;
+	}
+
+	/**
+	 * Computes the SHAP values of each sample of <code>newdata</code>
+	 * @param newdata the samples to explain
+	 * @param nThreads the number of threads among which the samples are split
+	 * @return <code>res[i][j]</code> is the contribution of variable <i>j</i> to the vote for the class of interest of sample <i>i</i>
+	 */
+	public double[][] getShapValues(final Data newdata, int nThreads){
+		final double[][] res = new double[newdata.getN()][];
+		Parallel.forEachBlock(newdata.getN(), nThreads, new Parallel.Block() {
+			@Override
+			public void run(int from, int to) {
+				PathBuffer path = new PathBuffer();
+				for(int i = from; i < to; i++){
+					double[] x = newdata.getRow(i);
+					double[] phi = new double[p];
+					for(TreeIF t : trees) path.recurse(t, x, phi, 0, 0, 1, 1, -1, 0, -1, 1);
+					for(int j = 0; j < p; j++) phi[j] /= trees.length;
+					res[i] = phi;
+				}
+			}
+		});
+		return res;
+	}
+
+	/**
+	 * Computes the SHAP interaction values of each sample of <code>newdata</code>.
+	 * The result takes <i>n * p * p</i> doubles, this is only tractable for a small number of variables or samples.
+	 * @param newdata the samples to explain
+	 * @param nThreads the number of threads among which the samples are split
+	 * @return <code>res[i][j][k]</code> is the interaction between variables <i>j</i> and <i>k</i> for sample <i>i</i>.
+	 *         The main effect of variable <i>j</i> is on the diagonal and <code>res[i][j]</code> sums to the SHAP value of <i>j</i>.
+	 */
+	public double[][][] getInteractionValues(final Data newdata, int nThreads){
+		final double[][][] res = new double[newdata.getN()][][];
+		Parallel.forEachBlock(newdata.getN(), nThreads, new Parallel.Block() {
+			@Override
+			public void run(int from, int to) {
+				PathBuffer path = new PathBuffer();
+				double[] phi = new double[p], on = new double[p], off = new double[p];
+				for(int i = from; i < to; i++){
+					double[] x = newdata.getRow(i);
+					double[][] inter = new double[p][p];
+					for(int t = 0; t < trees.length; t++){
+						int[] feats = featuresOfTree[t];
+						path.recurse(trees[t], x, phi, 0, 0, 1, 1, -1, 0, -1, 1);
+						for(int j : feats){
+							path.recurse(trees[t], x, on, 0, 0, 1, 1, -1, 1, j, 1);
+							path.recurse(trees[t], x, off, 0, 0, 1, 1, -1, -1, j, 1);
+							for(int k : feats){
+								double v = (on[k] - off[k]) / 2;
+								inter[j][k] += v;
+								inter[j][j] -= v;
+								on[k] = 0;
+								off[k] = 0;
+							}
+							inter[j][j] += phi[j];
+						}
+						for(int j : feats) phi[j] = 0;
+					}
+					for(double[] row : inter){
+						for(int k = 0; k < p; k++) row[k] /= trees.length;
+					}
+					res[i] = inter;
+				}
+			}
+		});
+		return res;
+	}
+
+	private double getLeafValue(Leaf l){
+		return (l.getClassToPredict() == classOfInterest)?1:0;
+	}
+
+	private double getExpectedValue(TreeIF node){
+		node = skipSingleChildren(node);
+		if(node instanceof Leaf) return getLeafValue((Leaf) node);
+		double res = 0;
+		for(TreeIF child : ((Tree) node).getSubTrees()){
+			res += ((double) child.getNbSamples()) / node.getNbSamples() * getExpectedValue(child);
+		}
+		return res;
+	}
+
+	private static void collectFeatures(TreeIF node, TreeSet<Integer> feats){
+		node = skipSingleChildren(node);
+		if(node instanceof Leaf) return;
+		feats.add(((Tree) node).getSplit().getVarId());
+		for(TreeIF child : ((Tree) node).getSubTrees()) collectFeatures(child, feats);
+	}
+
+	/**
+	 * Nodes with a single child (no split found or maximal depth reached) are transparent for the algorithm
+	 */
+	private static TreeIF skipSingleChildren(TreeIF node){
+		while(node instanceof Tree && ((Tree) node).getSubTrees().length == 1) node = ((Tree) node).getSubTrees()[0];
+		return node;
+	}
+
+	/**
+	 * Storage for the unique paths of all the recursion levels (the path of a level is a copy of the path of its parent, extended by one element).
+	 * One buffer is used per thread.
+	 */
+	private class PathBuffer {
+		private final int[] feat;
+		private final double[] zero, one, weight;
+
+		PathBuffer(){
+			int size = (maxDepth + 3) * (maxDepth + 4) / 2 + 1;
+			feat = new int[size];
+			zero = new double[size];
+			one = new double[size];
+			weight = new double[size];
+		}
+
+		/**
+		 * Adds the contribution of the tree rooted in <code>node</code> to <code>phi</code>
+		 * @param depth the number of elements in the path (excluding the root element)
+		 * @param parentOff the position of the path of the parent in the buffer
+		 * @param condition 0 for SHAP values, 1 (resp. -1) to compute the values when <code>condFeat</code> is always (resp. never) known
+		 */
+		void recurse(TreeIF node, double[] x, double[] phi, int depth, int parentOff, double parentZero, double parentOne, int parentFeat, int condition, int condFeat, double condFraction){
+			if(condFraction == 0) return;
+
+			int off = parentOff + depth + 1;
+			System.arraycopy(feat, parentOff, feat, off, depth + 1);
+			System.arraycopy(zero, parentOff, zero, off, depth + 1);
+			System.arraycopy(one, parentOff, one, off, depth + 1);
+			System.arraycopy(weight, parentOff, weight, off, depth + 1);
+
+			if(condition == 0 || condFeat != parentFeat) extend(off, depth, parentZero, parentOne, parentFeat);
+
+			node = skipSingleChildren(node);
+			if(node instanceof Leaf){
+				double v = getLeafValue((Leaf) node);
+				if(v == 0) return;
+				for(int i = 1; i <= depth; i++){
+					double w = unwoundSum(off, depth, i);
+					phi[feat[off + i]] += w * (one[off + i] - zero[off + i]) * v * condFraction;
+				}
+				return;
+			}
+
+			Tree t = (Tree) node;
+			TreeIF[] children = t.getSubTrees();
+			UnivariateSplit split = t.getSplit();
+			int splitFeat = split.getVarId();
+			int hot = split.getChildIdFor(x);
+
+			// if the feature was already used on the path, its previous element is removed and its fractions are combined with the new ones
+			double incomingZero = 1, incomingOne = 1;
+			int pathIndex = 0;
+			while(pathIndex <= depth && feat[off + pathIndex] != splitFeat) pathIndex++;
+			if(pathIndex != depth + 1){
+				incomingZero = zero[off + pathIndex];
+				incomingOne = one[off + pathIndex];
+				unwind(off, depth, pathIndex);
+				depth--;
+			}
+
+			boolean isCondFeat = condition != 0 && splitFeat == condFeat;
+			int childDepth = isCondFeat ? depth : depth + 1;
+			for(int c = 0; c < children.length; c++){
+				double childZero = ((double) children[c].getNbSamples()) / t.getNbSamples();
+				double childCond = condFraction;
+				if(isCondFeat){
+					if(condition > 0) childCond = (c == hot) ? condFraction : 0;
+					else childCond = condFraction * childZero;
+				}
+				recurse(children[c], x, phi, childDepth, off, childZero * incomingZero, (c == hot) ? incomingOne : 0, splitFeat, condition, condFeat, childCond);
+			}
+		}
+
+		private void extend(int off, int depth, double zeroFraction, double oneFraction, int feature){
+			feat[off + depth] = feature;
+			zero[off + depth] = zeroFraction;
+			one[off + depth] = oneFraction;
+			weight[off + depth] = (depth == 0) ? 1 : 0;
+			for(int i = depth - 1; i >= 0; i--){
+				weight[off + i + 1] += oneFraction * weight[off + i] * (i + 1) / (depth + 1);
+				weight[off + i] = zeroFraction * weight[off + i] * (depth - i) / (depth + 1);
+			}
+		}
+
+		private void unwind(int off, int depth, int pathIndex){
+			double oneFraction = one[off + pathIndex];
+			double zeroFraction = zero[off + pathIndex];
+			double next = weight[off + depth];
+			for(int i = depth - 1; i >= 0; i--){
+				if(oneFraction != 0){
+					double tmp = weight[off + i];
+					weight[off + i] = next * (depth + 1) / ((i + 1) * oneFraction);
+					next = tmp - weight[off + i] * zeroFraction * (depth - i) / (depth + 1);
+				}
+				else{
+					weight[off + i] = weight[off + i] * (depth + 1) / (zeroFraction * (depth - i));
+				}
+			}
+			for(int i = pathIndex; i < depth; i++){
+				feat[off + i] = feat[off + i + 1];
+				zero[off + i] = zero[off + i + 1];
+				one[off + i] = one[off + i + 1];
+			}
+		}
+
+		private double unwoundSum(int off, int depth, int pathIndex){
+			double oneFraction = one[off + pathIndex];
+			double zeroFraction = zero[off + pathIndex];
+			double next = weight[off + depth];
+			double total = 0;
+			for(int i = depth - 1; i >= 0; i--){
+				if(oneFraction != 0){
+					double tmp = next * (depth + 1) / ((i + 1) * oneFraction);
+					total += tmp;
+					next = weight[off + i] - tmp * zeroFraction * (depth - i) / (depth + 1);
+				}
+				else if(zeroFraction != 0){
+					total += weight[off + i] / zeroFraction * (depth + 1) / (depth - i);
+				}
+			}
+			return total;
+		}
+	}
+}
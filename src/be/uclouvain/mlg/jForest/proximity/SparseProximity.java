@@ -0,0 +1,218 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.proximity;
+
+import java.util.Arrays;
+
+import be.uclouvain.mlg.jForest.forest.LeafIndices;
+import be.uclouvain.mlg.jForest.tools.Parallel;
+
+/**
+ * Sparse random forest proximities.
+ * The proximity between two samples is the fraction of trees in which they fall into the same leaf.
+ * <p>
+ * The samples are grouped by leaf in each tree, then the rows of the proximity matrix are computed by blocks of samples in parallel.
+ * Each thread accumulates the co-occurrences of one row in a dense counter and only keeps the non-zero entries (or the <i>k</i> largest ones),
+ * so that the memory grows with the number of co-occurrences instead of <i>n<sup>2</sup></i>.
+ * The diagonal (always 1) is not stored.
+ * </p>
+ */
+public class SparseProximity {
+
+	private final int n;
+	private final int[][] neighbours;
+	private final float[][] proximities;
+
+	/**
+	 * Computes the proximities from the leaves reached by each sample in each tree
+	 * @param leaves the leaf of each tree in which each sample falls
+	 * @param topK the maximal number of neighbours kept for each sample (the ones with the largest proximities).
+	 *             A value &lt;= 0 keeps all the non-zero proximities.
+	 * @param nThreads the number of threads
+	 */
+	public SparseProximity(final LeafIndices leaves, final int topK, int nThreads){
+		final int ntree = leaves.getNTree();
+		n = leaves.getN();
+		neighbours = new int[n][];
+		proximities = new float[n][];
+
+		// members[t][leafStart[t][l] .. leafStart[t][l+1][ are the samples falling in leaf l of tree t (counting sort)
+		final int[][] members = new int[ntree][];
+		final int[][] leafStart = new int[ntree][];
+		Parallel.forEachBlock(ntree, nThreads, new Parallel.Block() {
+			@Override
+			public void run(int from, int to) {
+				for(int t = from; t < to; t++){
+					int nLeaves = leaves.getNbLeaves(t);
+					int[] start = new int[nLeaves + 1];
+					for(int i = 0; i < n; i++) start[leaves.get(i, t) + 1]++;
+					for(int l = 0; l < nLeaves; l++) start[l + 1] += start[l];
+					int[] pos = Arrays.copyOf(start, nLeaves);
+					int[] m = new int[n];
+					for(int i = 0; i < n; i++) m[pos[leaves.get(i, t)]++] = i;
+					members[t] = m;
+					leafStart[t] = start;
+				}
+			}
+		});
+
+		Parallel.forEachBlock(n, nThreads, new Parallel.Block() {
+			@Override
+			public void run(int from, int to) {
+				int[] count = new int[n];
+				int[] touched = new int[n];
+				int[] countHist = new int[ntree + 1];
+				for(int i = from; i < to; i++){
+					int nTouched = 0;
+					for(int t = 0; t < ntree; t++){
+						int l = leaves.get(i, t);
+						int[] m = members[t];
+						for(int k = leafStart[t][l]; k < leafStart[t][l + 1]; k++){
+							int j = m[k];
+							if(j == i) continue;
+							if(count[j] == 0) touched[nTouched++] = j;
+							count[j]++;
+						}
+					}
+
+					int minCount = 1, nTies = nTouched; // every entry with count > minCount is kept, as well as the first nTies entries with count == minCount
+					if(topK > 0 && nTouched > topK){
+						for(int k = 0; k < nTouched; k++) countHist[count[touched[k]]]++;
+						int nAbove = 0;
+						minCount = ntree;
+						while(nAbove + countHist[minCount] < topK){
+							nAbove += countHist[minCount];
+							minCount--;
+						}
+						nTies = topK - nAbove;
+						Arrays.fill(countHist, 0);
+					}
+
+					Arrays.sort(touched, 0, nTouched);
+					int size = Math.min(nTouched, (topK > 0) ? topK : nTouched);
+					int[] cols = new int[size];
+					float[] vals = new float[size];
+					int c = 0;
+					for(int k = 0; k < nTouched; k++){
+						int j = touched[k];
+						if(count[j] > minCount || (count[j] == minCount && nTies-- > 0)){
+							cols[c] = j;
+							vals[c] = ((float) count[j]) / ntree;
+							c++;
+						}
+						count[j] = 0;
+					}
+					neighbours[i] = cols;
+					proximities[i] = vals;
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return the number of samples
+	 */
+	public int getN(){
+		return n;
+	}
+
+	/**
+	 * @param i the index of a sample
+	 * @return the indices (in increasing order) of the samples having a stored proximity with sample <i>i</i>
+	 */
+	public int[] getNeighbours(int i){
+		return neighbours[i];
+	}
+
+	/**
+	 * @param i the index of a sample
+	 * @return the proximities between sample <i>i</i> and the samples of <code>getNeighbours(i)</code> (in the same order)
+	 */
+	public float[] getProximities(int i){
+		return proximities[i];
+	}
+
+	/**
+	 * @param i the index of a sample
+	 * @param j the index of a sample
+	 * @return the proximity between samples <i>i</i> and <i>j</i> (0 if it is not stored)
+	 */
+	public double get(int i, int j){
+		if(i == j) return 1;
+		int k = Arrays.binarySearch(neighbours[i], j);
+		return (k < 0) ? 0 : proximities[i][k];
+	}
+
+	/**
+	 * @return the number of stored proximities
+	 */
+	public long getNbNonZeros(){
+		long res = 0;
+		for(int[] row : neighbours) res += row.length;
+		return res;
+	}
+
+	/**
+	 * @return the row indices of the stored proximities (coordinate format)
+	 */
+	public int[] getRowIds(){
+		int[] res = new int[(int) getNbNonZeros()];
+		int c = 0;
+		for(int i = 0; i < n; i++){
+			for(int k = 0; k < neighbours[i].length; k++) res[c++] = i;
+		}
+		return res;
+	}
+
+	/**
+	 * @return the column indices of the stored proximities (coordinate format)
+	 */
+	public int[] getColIds(){
+		int[] res = new int[(int) getNbNonZeros()];
+		int c = 0;
+		for(int[] row : neighbours){
+			System.arraycopy(row, 0, res, c, row.length);
+			c += row.length;
+		}
+		return res;
+	}
+
+	/**
+	 * @return the stored proximities (coordinate format, same order as <code>getRowIds()</code> and <code>getColIds()</code>)
+	 */
+	public double[] getValues(){
+		double[] res = new double[(int) getNbNonZeros()];
+		int c = 0;
+		for(float[] row : proximities){
+			for(float v : row) res[c++] = v;
+		}
+		return res;
+	}
+}
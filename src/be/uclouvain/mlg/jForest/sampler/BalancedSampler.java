@@ -0,0 +1,75 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.sampler;
+
+import java.util.Random;
+
+/**
+ * Stratified sampler drawing the same number of indices in every class.
+ * By default, this number is the size of the smallest class: with replacement, this is the sampling of balanced random forests,
+ * without replacement, it down-samples the majority classes.
+ */
+public class BalancedSampler extends StratifiedSampler {
+
+	/**
+	 * Creates an instance of BalancedSampler drawing as many indices in each class as there are samples in the smallest class
+	 * @param rnd a random number generator
+	 * @param labels the class labels of all the samples, encoded as integers from 0 to <i>number of classes</i> - 1
+	 * @param replacement a boolean indicating if the sampling is to be done with replacement
+	 */
+	public BalancedSampler(Random rnd, int[] labels, boolean replacement) {
+		this(rnd, labels, getSmallestClassSize(labels), replacement);
+	}
+
+	/**
+	 * Creates an instance of BalancedSampler
+	 * @param rnd a random number generator
+	 * @param labels the class labels of all the samples, encoded as integers from 0 to <i>number of classes</i> - 1
+	 * @param sizePerClass the number of indices drawn in each class
+	 * @param replacement a boolean indicating if the sampling is to be done with replacement
+	 */
+	public BalancedSampler(Random rnd, int[] labels, int sizePerClass, boolean replacement) {
+		super(rnd, labels, getConstantSizes(labels, sizePerClass), replacement);
+	}
+
+	private static int getSmallestClassSize(int[] labels){
+		int min = Integer.MAX_VALUE;
+		for(int size : getClassSizes(labels)){
+			if(size > 0) min = Math.min(min, size);
+		}
+		return min;
+	}
+
+	private static int[] getConstantSizes(int[] labels, int sizePerClass){
+		int[] res = new int[getClassSizes(labels).length];
+		for(int c = 0; c < res.length; c++) res[c] = sizePerClass;
+		return res;
+	}
+}
@@ -47,7 +47,7 @@ public class BootstrapSampler extends RandomSampler {
 	}
 
 	@Override
-	protected int[][] getSampleWithReplacement(int[] indices) {
+	protected int[][] getSampleWithReplacement(int[] indices, Random rnd) {
 		int[] sampling = new int[indices.length];
 		boolean[] isPicked = new boolean[indices.length];
 		int sizeOob = indices.length;
@@ -76,7 +76,7 @@ public class BootstrapSampler extends RandomSampler {
 	}
 
 	@Override
-	protected int[][] getSampleWithoutReplacement(int[] indices) {
+	protected int[][] getSampleWithoutReplacement(int[] indices, Random rnd) {
 		RuntimeException up = new RuntimeException("sampling without replacement not implemented");
 		throw up; // :-)
 	}
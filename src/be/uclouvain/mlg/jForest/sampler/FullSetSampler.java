@@ -29,6 +29,8 @@ along with jForest.  If not, see <http://www.gnu.org/licenses/>.
 
 package be.uclouvain.mlg.jForest.sampler;
 
+import java.util.Random;
+
 /**
  * Trivial sampler that always returns a copy of the full set of indices.
  */
@@ -39,12 +41,12 @@ public class FullSetSampler extends RandomSampler {
 	}
 
 	@Override
-	protected int[][] getSampleWithReplacement(int[] indices) {
+	protected int[][] getSampleWithReplacement(int[] indices, Random rnd) {
 		throw new RuntimeException("Not implemented");
 	}
 
 	@Override
-	protected int[][] getSampleWithoutReplacement(int[] indices) {
+	protected int[][] getSampleWithoutReplacement(int[] indices, Random rnd) {
 		int[][] res = new int[2][];
 		res[0] = indices.clone();
 		res[1] = new int[0];
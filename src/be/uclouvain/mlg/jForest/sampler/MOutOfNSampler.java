@@ -0,0 +1,158 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.sampler;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates <i>m</i>-out-of-<i>n</i> samples from an original set <i>S</i> of indices:
+ * a random sample consists of <i>m &lt;= |S|</i> indices, sampled with or without replacement,
+ * where <i>m</i> is either fixed or a fraction of <i>|S|</i>.
+ * <p>
+ * The sampled positions are recorded in a bitmap of <i>|S|</i> bits. Without replacement, Floyd's algorithm draws
+ * <i>min(m, |S| - m)</i> positions and both the sample and the OOB are read from the bitmap in one pass over its words.
+ * The indices of the sample are returned in the order of <i>S</i>.
+ * </p>
+ */
+public class MOutOfNSampler extends RandomSampler {
+
+	private final int size;
+	private final double fraction;
+
+	/**
+	 * Creates a sampler drawing a fixed number of indices
+	 * @param rnd a random number generator
+	 * @param size the number <i>m &gt;= 0</i> of indices to draw. Without replacement, at most <i>|S|</i> indices are drawn.
+	 * @param replacement a boolean indicating if the sampling is to be done with replacement
+	 */
+	public MOutOfNSampler(Random rnd, int size, boolean replacement) {
+		super(replacement, rnd);
+		if(size < 0){
+			RuntimeException up = new RuntimeException("The sample size must be non-negative, got "+size);
+			throw up;
+		}
+		this.size = size;
+		this.fraction = -1;
+	}
+
+	/**
+	 * Creates a sampler drawing a fraction of the indices
+	 * @param rnd a random number generator
+	 * @param fraction the number of indices to draw, as a fraction of <i>|S|</i> in <i>]0 ; 1]</i>
+	 * @param replacement a boolean indicating if the sampling is to be done with replacement
+	 */
+	public MOutOfNSampler(Random rnd, double fraction, boolean replacement) {
+		super(replacement, rnd);
+		if(!(fraction > 0)){
+			RuntimeException up = new RuntimeException("The sample fraction must be positive, got "+fraction);
+			throw up;
+		}
+		this.size = -1;
+		this.fraction = fraction;
+	}
+
+	/**
+	 * @param n the number <i>|S|</i> of available indices
+	 * @return the number <i>m</i> of indices to draw. A fraction of a non-empty set draws at least one index.
+	 */
+	public int getSize(int n){
+		if(size >= 0) return size;
+		if(n == 0) return 0;
+		return Math.max(1, (int) Math.round(fraction * n));
+	}
+
+	@Override
+	protected int[][] getSampleWithReplacement(int[] indices, Random rnd) {
+		if(indices.length == 0) return new int[2][0];
+		int n = indices.length;
+		int m = getSize(n);
+		long[] isPicked = new long[(n + 63) >>> 6];
+		int[] pos = new int[m];
+		for(int k = 0; k < m; k++){
+			int j = rnd.nextInt(n);
+			pos[k] = j;
+			isPicked[j >>> 6] |= 1L << j;
+		}
+		Arrays.sort(pos);
+
+		int nPicked = 0;
+		for(long w : isPicked) nPicked += Long.bitCount(w);
+
+		int[][] res = new int[2][];
+		res[0] = new int[m];
+		for(int k = 0; k < m; k++) res[0][k] = indices[pos[k]];
+		res[1] = collect(isPicked, indices, false, n - nPicked);
+		return res;
+	}
+
+	@Override
+	protected int[][] getSampleWithoutReplacement(int[] indices, Random rnd) {
+		int n = indices.length;
+		int m = Math.min(getSize(n), n);
+
+		// Floyd's algorithm draws the smallest of the sample and of its complement
+		boolean drawOob = m > n / 2;
+		int k = drawOob ? n - m : m;
+		long[] isDrawn = new long[(n + 63) >>> 6];
+		for(int j = n - k; j < n; j++){
+			int t = rnd.nextInt(j + 1);
+			if((isDrawn[t >>> 6] & (1L << t)) != 0) t = j;
+			isDrawn[t >>> 6] |= 1L << t;
+		}
+
+		int[][] res = new int[2][];
+		res[0] = collect(isDrawn, indices, !drawOob, m);
+		res[1] = collect(isDrawn, indices, drawOob, n - m);
+		return res;
+	}
+
+	/**
+	 * @param bits a bitmap over the positions of <code>indices</code>
+	 * @param indices the original set of indices
+	 * @param set <code>true</code> to collect the positions whose bit is set, <code>false</code> for the others
+	 * @param count the number of positions to collect
+	 * @return the indices at the collected positions, in the order of <code>indices</code>
+	 */
+	private static int[] collect(long[] bits, int[] indices, boolean set, int count){
+		int[] res = new int[count];
+		int c = 0;
+		for(int w = 0; w < bits.length && c < count; w++){
+			long word = set ? bits[w] : ~bits[w];
+			while(word != 0){
+				int pos = (w << 6) + Long.numberOfTrailingZeros(word);
+				if(pos >= indices.length) break;
+				res[c++] = indices[pos];
+				word &= word - 1;
+			}
+		}
+		return res;
+	}
+}
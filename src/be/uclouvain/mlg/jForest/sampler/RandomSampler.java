@@ -59,11 +59,47 @@ public abstract class RandomSampler {
      *             </ol>
 	 */
 	public int[][] getSample(int[] indices){
+		return getSample(indices, rnd);
+	}
+	
+	/**
+	 * Get a sample of the array of indices drawn from a random number generator initialized with <code>seed</code>.
+	 * The samplers whose result only depends on <code>indices</code> and on the random numbers (<i>e.g.</i> the instance samplers)
+	 * return the same sample each time they are called with the same seed, so that a sample can be regenerated instead of stored.
+	 * @param indices is an array containing the indices of available points in the dataset
+	 * @param seed the seed of the random number generator
+	 * @return the same as <code>getSample(int[] indices)</code>
+	 */
+	public int[][] getSample(int[] indices, long seed){
+		return getSample(indices, new Random(seed));
+	}
+	
+	/**
+	 * Get a sample of the indices which are not excluded, <i>e.g.</i> to skip the variables known to be constant in a node.
+	 * @param indices is an array containing the indices of available points in the dataset
+	 * @param excluded <code>excluded[i]</code> is <code>true</code> if index <i>i</i> cannot be sampled, or <code>null</code> if none is excluded
+	 * @return the same as <code>getSample(int[] indices)</code> on the indices which are not excluded
+	 */
+	public int[][] getSample(int[] indices, boolean[] excluded){
+		if(excluded == null) return getSample(indices);
+		int size = 0;
+		for(int i : indices){
+			if(!excluded[i]) size++;
+		}
+		int[] kept = new int[size];
+		size = 0;
+		for(int i : indices){
+			if(!excluded[i]) kept[size++] = i;
+		}
+		return getSample(kept);
+	}
+	
+	private int[][] getSample(int[] indices, Random rnd){
 		if(replacement){
-			return getSampleWithReplacement(indices);
+			return getSampleWithReplacement(indices, rnd);
 		}
 		else{
-			return getSampleWithoutReplacement(indices);
+			return getSampleWithoutReplacement(indices, rnd);
 		}
 	}
 	
@@ -76,12 +112,14 @@ public abstract class RandomSampler {
 	
 	/**
 	 * Implements sampling with replacement <i>cf.</i> <code>public int[][] getSample(int[] indices)</code>
+	 * @param rnd the random number generator to draw the sample from
 	 */
-	protected abstract int[][] getSampleWithReplacement(int[] indices);
+	protected abstract int[][] getSampleWithReplacement(int[] indices, Random rnd);
 	
 	/**
 	 * Implements sampling without replacement <i>cf.</i> <code>public int[][] getSample(int[] indices)</code>
+	 * @param rnd the random number generator to draw the sample from
 	 */
-	protected abstract int[][] getSampleWithoutReplacement(int[] indices);
+	protected abstract int[][] getSampleWithoutReplacement(int[] indices, Random rnd);
 	
 }
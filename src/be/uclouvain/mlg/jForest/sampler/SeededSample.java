@@ -0,0 +1,83 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package be.uclouvain.mlg.jForest.sampler;
+
+/**
+ * A sample drawn by a RandomSampler and stored as the seed of the random number generator it was drawn from.
+ * The in-bag and out-of-bag indices are regenerated on demand by replaying the sampler,
+ * so that a grown tree does not need to keep them in memory.
+ */
+public class SeededSample {
+
+	private final RandomSampler sampler;
+	private final int[] indices;
+	private final long seed;
+
+	/**
+	 * @param sampler the sampler that drew the sample. It should give the same sample for the same seed
+	 *                (see <code>RandomSampler.getSample(int[] indices, long seed)</code>).
+	 * @param indices the indices of available points in the dataset, from which the sample was drawn
+	 * @param seed the seed of the random number generator used to draw the sample
+	 */
+	public SeededSample(RandomSampler sampler, int[] indices, long seed) {
+		this.sampler = sampler;
+		this.indices = indices;
+		this.seed = seed;
+	}
+
+	/**
+	 * @return the same as <code>RandomSampler.getSample(int[] indices)</code>, recomputed at each call
+	 */
+	public int[][] getSample(){
+		return sampler.getSample(indices, seed);
+	}
+
+	/**
+	 * @return the indices of the points in the sample, recomputed at each call
+	 */
+	public int[] getInBag(){
+		return getSample()[0];
+	}
+
+	/**
+	 * @return the indices of the points that are not in the sample, recomputed at each call
+	 */
+	public int[] getOob(){
+		return getSample()[1];
+	}
+
+	/**
+	 * @return the seed of the random number generator used to draw the sample
+	 */
+	public long getSeed(){
+		return seed;
+	}
+}
@@ -0,0 +1,177 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.sampler;
+
+import java.util.Random;
+
+/**
+ * Generates stratified samples from an original set <i>S</i> of indices:
+ * a given number of indices is drawn in each class, with or without replacement.
+ * With per-class sizes equal to the class sizes, this is a stratified bootstrap.
+ * With small or equal per-class sizes (see {@link BalancedSampler}), each tree is grown on a small, class-balanced sample
+ * as in balanced random forests (Chen, C., Liaw, A. and Breiman, L. (2004). Using random forest to learn imbalanced data. University of California, Berkeley, 110).
+ * <p>
+ * The indices not drawn form the OOB. The grouping of <i>S</i> by class is computed once and reused as long as the same array of indices is given.
+ * This object is not thread-safe.
+ * </p>
+ */
+public class StratifiedSampler extends RandomSampler {
+
+	private final int[] labels;
+	private final int[] sampSize;
+	private int[] lastIndices;
+	private int[][] posByClass;
+
+	/**
+	 * Creates an instance of StratifiedSampler
+	 * @param rnd a random number generator
+	 * @param labels the class labels of all the samples, encoded as integers from 0 to <i>number of classes</i> - 1
+	 * @param sampSize <code>sampSize[c]</code> is the number of indices drawn in class <i>c</i>.
+	 *                 Without replacement, at most the whole class is drawn.
+	 * @param replacement a boolean indicating if the sampling is to be done with replacement
+	 */
+	public StratifiedSampler(Random rnd, int[] labels, int[] sampSize, boolean replacement) {
+		super(replacement, rnd);
+		this.labels = labels;
+		this.sampSize = sampSize;
+		if(sampSize.length < getNumberOfClasses(labels)){
+			RuntimeException up = new RuntimeException("One sample size should be given for each of the "+getNumberOfClasses(labels)+" classes");
+			throw up;
+		}
+	}
+
+	/**
+	 * @param labels class labels encoded as integers from 0 to <i>number of classes</i> - 1
+	 * @return the number of samples of each class
+	 */
+	protected static int[] getClassSizes(int[] labels){
+		int[] res = new int[getNumberOfClasses(labels)];
+		for(int l : labels) res[l]++;
+		return res;
+	}
+
+	private static int getNumberOfClasses(int[] labels){
+		int max = -1;
+		for(int l : labels) max = Math.max(max, l);
+		return max + 1;
+	}
+
+	@Override
+	protected int[][] getSampleWithReplacement(int[] indices, Random rnd) {
+		return getStratifiedSample(indices, rnd);
+	}
+
+	@Override
+	protected int[][] getSampleWithoutReplacement(int[] indices, Random rnd) {
+		return getStratifiedSample(indices, rnd);
+	}
+
+	/**
+	 * @return <code>res[c]</code> contains the positions in <code>indices</code> of the samples of class <i>c</i>
+	 */
+	private int[][] getPositionsByClass(int[] indices){
+		if(indices != lastIndices){
+			int[] count = new int[sampSize.length];
+			for(int i : indices) count[labels[i]]++;
+			posByClass = new int[sampSize.length][];
+			for(int c = 0; c < count.length; c++){
+				posByClass[c] = new int[count[c]];
+				count[c] = 0;
+			}
+			for(int k = 0; k < indices.length; k++){
+				int c = labels[indices[k]];
+				posByClass[c][count[c]++] = k;
+			}
+			lastIndices = indices;
+		}
+		return posByClass;
+	}
+
+	private int[][] getStratifiedSample(int[] indices, Random rnd){
+		int[][] pos = getPositionsByClass(indices);
+
+		int total = 0;
+		for(int c = 0; c < pos.length; c++) total += getSize(c, pos[c].length);
+
+		int[] sampling = new int[total];
+		boolean[] isPicked = new boolean[indices.length];
+		int sizeOob = indices.length;
+		int s = 0;
+		for(int c = 0; c < pos.length; c++){
+			int[] pc = pos[c];
+			int size = getSize(c, pc.length);
+			if(replacement){
+				for(int k = 0; k < size; k++){
+					int j = pc[rnd.nextInt(pc.length)];
+					sampling[s++] = indices[j];
+					if(!isPicked[j]) sizeOob--;
+					isPicked[j] = true;
+				}
+			}
+			else{
+				// Floyd's algorithm: the cached positions are left untouched so that a seed always gives the same sample
+				for(int k = pc.length - size; k < pc.length; k++){
+					int j = pc[rnd.nextInt(k + 1)];
+					if(isPicked[j]) j = pc[k];
+					sampling[s++] = indices[j];
+					sizeOob--;
+					isPicked[j] = true;
+				}
+			}
+		}
+
+		int[] oob = new int[sizeOob];
+		int o = 0;
+		for(int k = 0; k < isPicked.length; k++){
+			if(!isPicked[k]) oob[o++] = indices[k];
+		}
+
+		int[][] res = new int[2][];
+		res[0] = sampling;
+		res[1] = oob;
+		return res;
+	}
+
+	/**
+	 * @return the number of indices drawn in class <code>c</code> which has <code>classSize</code> samples
+	 */
+	private int getSize(int c, int classSize){
+		if(classSize == 0) return 0;
+		if(replacement) return sampSize[c];
+		return Math.min(sampSize[c], classSize);
+	}
+
+	/**
+	 * @return the number of indices drawn in each class
+	 */
+	public int[] getSampSize(){
+		return sampSize;
+	}
+}
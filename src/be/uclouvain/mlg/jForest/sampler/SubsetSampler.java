@@ -29,55 +29,136 @@ along with jForest.  If not, see <http://www.gnu.org/licenses/>.
 
 package be.uclouvain.mlg.jForest.sampler;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
  * Generates bootstrap samples from an original set <i>S</i> of indices.
  * A random sample consists of <i>mtry</i> indices sampled without replacement.
  * There are <i>C(|S|,mtry)</i> different sets of size <i>mtry</i> in <i>S</i>. 
+ * <p>
+ * When the complement of the sample is not needed (<i>e.g.</i> to sample candidate variables),
+ * the sampler draws only <i>mtry</i> indices with a partial Fisher–Yates shuffle of a scratch permutation kept for each thread,
+ * whose swaps are undone afterwards. Sampling then runs in <i>O(mtry)</i> instead of <i>O(|S|)</i>,
+ * and a sample only depends on the random numbers drawn.
+ * </p>
  */
 public class SubsetSampler extends RandomSampler {
 
+	private static final int[] EMPTY = new int[0];
+
 	protected final int mtry;
+	private final boolean complement;
+	private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>();
 
 	/**
-	 * Creates an instance of SubsetSampler
+	 * Creates an instance of SubsetSampler that also returns the complement of each sample
 	 * @param rnd a random number generator
 	 * @param mtry the number of indices to be sampled. <i>mtry < |S| </i> should hold.
 	 */
 	public SubsetSampler(Random rnd, int mtry) {
+		this(rnd, mtry, true);
+	}
+
+	/**
+	 * Creates an instance of SubsetSampler
+	 * @param rnd a random number generator
+	 * @param mtry the number of indices to be sampled. <i>mtry < |S| </i> should hold.
+	 * @param complement if <code>false</code>, only the <i>mtry</i> sampled indices are drawn and the second array returned by <code>getSample</code> is empty
+	 */
+	public SubsetSampler(Random rnd, int mtry, boolean complement) {
 		super(false, rnd);
 		this.mtry = mtry;
+		this.complement = complement;
 	}
-	
 
 	@Override
-	protected int[][] getSampleWithReplacement(int[] indices) {
+	protected int[][] getSampleWithReplacement(int[] indices, Random rnd) {
 		RuntimeException up = new RuntimeException("Sampling with replacement not implemented");
 		throw up;
 	}
 
 	@Override
-	protected int[][] getSampleWithoutReplacement(int[] indices) {
-		ArrayList<Integer> tmp = new ArrayList<Integer>();
-		for(int i : indices) tmp.add(i);
-		Collections.shuffle(tmp,rnd);
-		int[] in = new int[mtry];
-		int[] oob = new int[indices.length-mtry];
-		for(int i = 0; i < mtry; i++){
-			in[i] = tmp.get(i);
+	protected int[][] getSampleWithoutReplacement(int[] indices, Random rnd) {
+		int[][] res = new int[2][];
+		if(complement){
+			// same swaps as Collections.shuffle(list,rnd) on a list of indices, without boxing
+			int[] tmp = indices.clone();
+			for(int i = tmp.length; i > 1; i--){
+				int j = rnd.nextInt(i);
+				int swap = tmp[i-1];
+				tmp[i-1] = tmp[j];
+				tmp[j] = swap;
+			}
+			int size = Math.min(mtry, tmp.length); // fewer indices than mtry when some are excluded
+			res[0] = Arrays.copyOfRange(tmp, 0, size);
+			res[1] = Arrays.copyOfRange(tmp, size, tmp.length);
 		}
-		for(int i = 0; i < indices.length-mtry; i++){
-			oob[i] = tmp.get(mtry+i);
+		else{
+			res[0] = getSubset(indices, null, rnd);
+			res[1] = EMPTY;
 		}
-
-		int[][] res = new int[2][];
-		res[0] = in;
-		res[1] = oob;
 		return res;
 	}
+
+	/**
+	 * Without complement, the excluded indices are skipped while drawing, in <i>O(mtry + number of excluded indices drawn)</i>.
+	 * The first <i>mtry</i> indices which are not excluded in a random order form a uniformly drawn subset.
+	 */
+	@Override
+	public int[][] getSample(int[] indices, boolean[] excluded) {
+		if(complement || excluded == null) return super.getSample(indices, excluded);
+		return new int[][]{getSubset(indices, excluded, rnd), EMPTY};
+	}
+
+	/**
+	 * Draws <i>mtry</i> indices with a partial Fisher–Yates shuffle.
+	 * The scratch array is the identity permutation of the positions in <code>indices</code>.
+	 * The swaps are recorded and undone in reverse order before returning, so that the subset only depends on <code>rnd</code>.
+	 * The excluded indices are drawn but not kept, so fewer than <i>mtry</i> indices are returned if there are not enough other ones.
+	 */
+	private int[] getSubset(int[] indices, boolean[] excluded, Random rnd){
+		Scratch s = scratch.get();
+		if(s == null || s.perm.length != indices.length){
+			s = new Scratch(indices.length);
+			scratch.set(s);
+		}
+		int[] perm = s.perm, swaps = s.swaps;
+
+		int size = Math.min(mtry, indices.length);
+		int[] in = new int[size];
+		int nIn = 0;
+		int k = 0;
+		for(; k < perm.length && nIn < size; k++){
+			int j = k + rnd.nextInt(perm.length - k);
+			swaps[k] = j;
+			int swap = perm[k];
+			perm[k] = perm[j];
+			perm[j] = swap;
+			if(excluded == null || !excluded[indices[perm[k]]]) in[nIn++] = indices[perm[k]];
+		}
+		while(--k >= 0){
+			int j = swaps[k];
+			int swap = perm[k];
+			perm[k] = perm[j];
+			perm[j] = swap;
+		}
+		return (nIn == size) ? in : Arrays.copyOf(in, nIn);
+	}
+
+	/**
+	 * The identity permutation shuffled by <code>getSubset</code> and the swaps done, for one thread
+	 */
+	private static final class Scratch {
+		final int[] perm;
+		final int[] swaps;
+
+		Scratch(int n){
+			perm = new int[n];
+			for(int i = 0; i < n; i++) perm[i] = i;
+			swaps = new int[n];
+		}
+	}
 	
 	/**
 	 * @return the size of the subsets to be sampled
@@ -0,0 +1,202 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.selection;
+
+import java.util.Random;
+
+import org.apache.commons.math3.distribution.BinomialDistribution;
+
+import be.uclouvain.mlg.jForest.data.Data;
+import be.uclouvain.mlg.jForest.data.ShadowData;
+import be.uclouvain.mlg.jForest.forest.Forest;
+import be.uclouvain.mlg.jForest.importance.external.permutation.Average;
+import be.uclouvain.mlg.jForest.importance.external.permutation.indices.AccuracyDrop;
+import be.uclouvain.mlg.jForest.importance.internal.AverageSplitIndex;
+import be.uclouvain.mlg.jForest.sampler.RandomSampler;
+import be.uclouvain.mlg.jForest.sampler.SubsetSampler;
+import be.uclouvain.mlg.jForest.splitting.ReflectiveSplitterFactory;
+import be.uclouvain.mlg.jForest.splitting.Splitter;
+import be.uclouvain.mlg.jForest.splitting.SplitterFactoryIF;
+
+/**
+ * All-relevant feature selection as described in
+ * Kursa, M. B. and Rudnicki, W. R. (2010). Feature selection with the Boruta package. Journal of Statistical Software, 36(11), 1–13.
+ * <p>
+ * At each run, a forest is grown on the variables that are not rejected yet, augmented with their shadow copies (see {@link ShadowData}).
+ * A variable scores a hit when its importance is larger than the maximal importance of the shadow variables.
+ * Tentative variables are confirmed (resp. rejected) when a Bonferroni corrected binomial test shows they score significantly more (resp. less) hits than expected by chance.
+ * Rejected variables are removed from the next runs.
+ * </p>
+ */
+public class Boruta {
+
+	/** decision of a variable which is neither confirmed nor rejected */
+	public static final int TENTATIVE = 0;
+	/** decision of a variable which is significantly more important than the shadow variables */
+	public static final int CONFIRMED = 1;
+	/** decision of a variable which is significantly less important than the shadow variables */
+	public static final int REJECTED = 2;
+
+	private final Data d;
+	private final int[] decisions;
+	private final int[] hits;
+	private final double[] sumImportance;
+	private final int[] nEvaluated;
+	private final double pValue;
+	private int nRuns;
+
+	/**
+	 * Runs the feature selection
+	 * @param d                    the training data
+	 * @param rnd                  the random number generator used to shuffle the shadow variables and to sample the candidate variables
+	 * @param ntree                the number of trees of each forest
+	 * @param mtry                 the number of candidate variables in each node. A value &lt;= 0 uses the square root of the number of variables (including shadows) of each run.
+	 * @param bootstrapSampler     the sampler that randomly selects training instances for growing each tree
+	 * @param nodeSplitterClass    the class of the objects that perform variable based splits, created with their default constructor
+	 * @param maxDepth             the maximal depth of the decision trees. A negative value will cause to fully grow the trees.
+	 * @param permImportance       <code>true</code> to use the mean decrease in accuracy on the OOB, <code>false</code> to use the mean split index (<i>e.g.</i> Gini drop)
+	 * @param pValue               the significance level of the tests
+	 * @param maxRuns              the maximal number of forests to grow. Some variables may remain tentative after the last run.
+	 */
+	public Boruta(Data d, Random rnd, int ntree, int mtry, RandomSampler bootstrapSampler, Class<? extends Splitter> nodeSplitterClass, int maxDepth, boolean permImportance, double pValue, int maxRuns){
+		this(d, rnd, ntree, mtry, bootstrapSampler, new ReflectiveSplitterFactory(nodeSplitterClass), maxDepth, permImportance, pValue, maxRuns);
+	}
+
+	/**
+	 * Runs the feature selection
+	 * @param d                    the training data
+	 * @param rnd                  the random number generator used to shuffle the shadow variables and to sample the candidate variables
+	 * @param ntree                the number of trees of each forest
+	 * @param mtry                 the number of candidate variables in each node. A value &lt;= 0 uses the square root of the number of variables (including shadows) of each run.
+	 * @param bootstrapSampler     the sampler that randomly selects training instances for growing each tree
+	 * @param splitterFactory      the factory of the objects that perform variable based splits (<i>e.g.</i> a configured splitter used as a prototype)
+	 * @param maxDepth             the maximal depth of the decision trees. A negative value will cause to fully grow the trees.
+	 * @param permImportance       <code>true</code> to use the mean decrease in accuracy on the OOB, <code>false</code> to use the mean split index (<i>e.g.</i> Gini drop)
+	 * @param pValue               the significance level of the tests
+	 * @param maxRuns              the maximal number of forests to grow. Some variables may remain tentative after the last run.
+	 */
+	public Boruta(Data d, Random rnd, int ntree, int mtry, RandomSampler bootstrapSampler, SplitterFactoryIF splitterFactory, int maxDepth, boolean permImportance, double pValue, int maxRuns){
+		this.d = d;
+		decisions = new int[d.getP()];
+		hits = new int[d.getP()];
+		sumImportance = new double[d.getP()];
+		nEvaluated = new int[d.getP()];
+		this.pValue = pValue;
+		nRuns = 0;
+
+		int[] candidates = d.getColRange();
+		while(nRuns < maxRuns && hasTentative()){
+			ShadowData shadow = new ShadowData(d, candidates, rnd);
+			int m = candidates.length;
+			int curMtry = (mtry > 0) ? Math.min(mtry, 2 * m) : Math.max(1, (int) Math.sqrt(2 * m));
+
+			AverageSplitIndex inImp = new AverageSplitIndex(2 * m);
+			Forest forest = new Forest(shadow, ntree, bootstrapSampler, new SubsetSampler(rnd, curMtry, false), splitterFactory, inImp, maxDepth, true);
+			double[] imp;
+			if(permImportance) imp = forest.getExternalImportance(new Average(shadow, rnd, new AccuracyDrop()));
+			else imp = forest.getInternalImportance();
+
+			double shadowMax = Double.NEGATIVE_INFINITY;
+			for(int j = m; j < 2 * m; j++) shadowMax = Math.max(shadowMax, imp[j]);
+			for(int j = 0; j < m; j++){
+				if(imp[j] > shadowMax) hits[candidates[j]]++;
+				sumImportance[candidates[j]] += imp[j];
+				nEvaluated[candidates[j]]++;
+			}
+			nRuns++;
+
+			decide();
+			candidates = getNonRejected();
+		}
+	}
+
+	/**
+	 * Confirms or rejects the tentative variables according to their number of hits
+	 */
+	private void decide(){
+		BinomialDistribution binom = new BinomialDistribution(nRuns, 0.5);
+		double alpha = pValue / d.getP(); // Bonferroni correction
+		for(int f = 0; f < decisions.length; f++){
+			if(decisions[f] != TENTATIVE) continue;
+			if(1 - binom.cumulativeProbability(hits[f] - 1) < alpha) decisions[f] = CONFIRMED;
+			else if(binom.cumulativeProbability(hits[f]) < alpha) decisions[f] = REJECTED;
+		}
+	}
+
+	private boolean hasTentative(){
+		for(int dec : decisions){
+			if(dec == TENTATIVE) return true;
+		}
+		return false;
+	}
+
+	private int[] getNonRejected(){
+		int c = 0;
+		for(int dec : decisions){
+			if(dec != REJECTED) c++;
+		}
+		int[] res = new int[c];
+		c = 0;
+		for(int f = 0; f < decisions.length; f++){
+			if(decisions[f] != REJECTED) res[c++] = f;
+		}
+		return res;
+	}
+
+	/**
+	 * @return for each variable, one of <code>TENTATIVE</code>, <code>CONFIRMED</code> or <code>REJECTED</code>
+	 */
+	public int[] getDecisions(){
+		return decisions;
+	}
+
+	/**
+	 * @return for each variable, the number of runs in which its importance was larger than the one of all shadow variables
+	 */
+	public int[] getHits(){
+		return hits;
+	}
+
+	/**
+	 * @return for each variable, its average importance over the runs in which it was not rejected yet
+	 */
+	public double[] getMeanImportance(){
+		double[] res = new double[sumImportance.length];
+		for(int f = 0; f < res.length; f++) res[f] = sumImportance[f] / nEvaluated[f];
+		return res;
+	}
+
+	/**
+	 * @return the number of forests grown
+	 */
+	public int getNbRuns(){
+		return nRuns;
+	}
+}
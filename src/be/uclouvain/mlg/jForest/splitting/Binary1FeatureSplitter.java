@@ -30,33 +30,77 @@ along with jForest.  If not, see <http://www.gnu.org/licenses/>.
 package be.uclouvain.mlg.jForest.splitting;
 import java.util.Arrays;
 
+import be.uclouvain.mlg.jForest.splitting.index.GiniImpurity;
+import be.uclouvain.mlg.jForest.splitting.index.ImpurityIF;
 import be.uclouvain.mlg.jForest.splitting.split.UnivariateSplit;
 
 /**
  * Abstract definition of objects that perform binary splits.
+ * The splits are scored by their drop in impurity, the Gini index by default.
  */
 public abstract class Binary1FeatureSplitter extends Splitter {
 
 	private boolean isCatSplit;
+	protected final ImpurityIF impurity;
+
+	/**
+	 * Creates a splitter scored by the Gini index
+	 */
+	protected Binary1FeatureSplitter(){
+		this(new GiniImpurity());
+	}
+
+	/**
+	 * @param impurity the impurity measure whose drop scores the splits
+	 */
+	protected Binary1FeatureSplitter(ImpurityIF impurity){
+		if(impurity == null) throw new RuntimeException("The impurity measure cannot be null.");
+		this.impurity = impurity;
+	}
+
+	/**
+	 * @return the impurity measure whose drop scores the splits
+	 */
+	public ImpurityIF getImpurity(){
+		return impurity;
+	}
 
 	@Override
 	public void findBestSplit() {
+		int bestVar = searchBestSplit();
+		if(bestVar == -1){ // every candidate variable is constant
+			nbChildren = 1;
+			return;
+		}
+		nbChildren = 2;
+		varUsedInSplit = new int[]{bestVar};
+		isCatSplit = d.getIsCat()[bestVar];
+		int[][] repartition = getRepartition();
+		if(repartition[0].length == 0 || repartition[1].length == 0) nbChildren = 1; // happens if we cannot separate the data
+	}
+
+	/**
+	 * Evaluates the variables of <code>mtryVars</code> on the samples of <code>sampleIds</code> and keeps the best split
+	 * in <code>howToSplit</code> and <code>bestImpIndex</code>.
+	 * The samples are only read through <code>getSplitAndIndex(int f)</code>, so a subclass can search on other samples
+	 * than the ones the split is applied to by <code>getRepartition()</code>.
+	 * The variables known to be constant in the node are skipped.
+	 * @return the best variable, or -1 if there is no candidate variable which is not constant
+	 */
+	protected int searchBestSplit() {
 		bestImpIndex = -1; 
 		int bestVar = -1;
 		for(int f : mtryVars){
+			if(isConstant(f)) continue; // it cannot separate the samples
 			// in case of tie, the first variable is kept. However the order of those variable can be random in mtryVars.
 			UnivariateSplit tmp = getSplitAndIndex(f);
 			if(tmp.getIndex() > bestImpIndex){
 				bestImpIndex = tmp.getIndex();
 				bestVar = f;
-				isCatSplit = d.getIsCat()[f];
 				howToSplit = tmp;
 			}
 		}
-		nbChildren = 2;
-		varUsedInSplit = new int[]{bestVar};
-		int[][] repartition = getRepartition();
-		if(repartition[0].length == 0 || repartition[1].length == 0) nbChildren = 1; // happens if we cannot separate the data
+		return bestVar;
 	}
 
 	/**
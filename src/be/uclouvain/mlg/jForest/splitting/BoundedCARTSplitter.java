@@ -0,0 +1,178 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.splitting;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import be.uclouvain.mlg.jForest.splitting.index.ImpurityIF;
+import be.uclouvain.mlg.jForest.splitting.split.ContinuousBinarySplit;
+import be.uclouvain.mlg.jForest.splitting.split.UnivariateSplit;
+
+/**
+ * CART like splits where the candidate variables are searched by branch and bound.
+ * <p>
+ * The samples of the node are first counted by class for each value of the categorical variables
+ * and of the continuous variables with few distinct values (see <code>getRankClassCounts(int f)</code>).
+ * Splitting the node in one child per value gives an upper bound of the drop in impurity of any binary split of the variable,
+ * since a binary split merges these children and merging children never lowers their weighted impurity (the Gini index and the entropy are concave).
+ * The variables are then searched by decreasing bound, the ones without a bound first,
+ * and the search stops when the bound of the next variable is below the best drop found.
+ * </p>
+ * <p>
+ * The split is the same as the one of {@link CARTSplitter}: in case of tie, the variable which comes first in <code>mtryVars</code> is kept,
+ * and a variable is only skipped if its bound is lower than the best drop by more than the rounding errors.
+ * </p>
+ */
+public class BoundedCARTSplitter extends CARTSplitter {
+
+	private static final double TOLERANCE = 1e-12;
+
+	/**
+	 * Creates a splitter scored by the Gini index
+	 */
+	public BoundedCARTSplitter(){
+		super();
+	}
+
+	/**
+	 * @param impurity the impurity measure whose drop scores the splits
+	 */
+	public BoundedCARTSplitter(ImpurityIF impurity){
+		super(impurity);
+	}
+
+	@Override
+	public Splitter newSplitter() {
+		return new BoundedCARTSplitter(impurity);
+	}
+
+	@Override
+	protected int searchBestSplit() {
+		final int nVars = mtryVars.length;
+		int nClasses = d.getNumberOfClasses(), n = sampleIds.length;
+		int[] labels = d.getLabels();
+		int[] cur = new int[nClasses];
+		for(int i : sampleIds) cur[labels[i]]++;
+		double impCur = impurity.getImpurity(cur, 0, n, nClasses);
+
+		final double[] bounds = new double[nVars];
+		int[][][] catCounts = new int[nVars][][];
+		int[][] rankCounts = new int[nVars][];
+		Integer[] order = new Integer[nVars];
+		for(int q = 0; q < nVars; q++){
+			order[q] = q;
+			int f = mtryVars[q];
+			if(isConstant(f)){
+				bounds[q] = Double.NEGATIVE_INFINITY;
+			}
+			else if(d.getIsCat()[f]){
+				catCounts[q] = getLevelClassCounts(f);
+				bounds[q] = getCatBound(f, catCounts[q], cur, n);
+			}
+			else if(d.getRanks(f) != null && (long) d.getSortedValues(f).length * nClasses <= n){
+				rankCounts[q] = getRankClassCounts(f);
+				bounds[q] = impCur;
+				double[] values = d.getSortedValues(f);
+				int minRank = -1, maxRank = -1;
+				for(int r = 0; r < values.length; r++){
+					int size = 0;
+					for(int c = 0; c < nClasses; c++) size += rankCounts[q][r * nClasses + c];
+					if(size > 0){
+						bounds[q] -= ((double) size) / n * impurity.getImpurity(rankCounts[q], r * nClasses, size, nClasses);
+						if(minRank == -1) minRank = r;
+						maxRank = r;
+					}
+				}
+				if(values[minRank] == values[maxRank]) markConstant(f);
+			}
+			else{
+				bounds[q] = Double.POSITIVE_INFINITY;
+			}
+		}
+
+		Arrays.sort(order, new Comparator<Integer>() { // stable, so that variables with the same bound keep their order
+			@Override
+			public int compare(Integer q1, Integer q2) {
+				return Double.compare(bounds[q2], bounds[q1]);
+			}
+		});
+
+		bestImpIndex = -1;
+		int bestVar = -1, bestPos = nVars;
+		for(int q : order){
+			int f = mtryVars[q];
+			if(bounds[q] == Double.NEGATIVE_INFINITY || bounds[q] < bestImpIndex - TOLERANCE) break; // no other variable can do better
+			UnivariateSplit tmp;
+			UnivariateSplit none = new ContinuousBinarySplit(-1, Double.NEGATIVE_INFINITY, Double.NaN);
+			if(catCounts[q] != null) tmp = computeCatSplit(f, catCounts[q], none);
+			else if(rankCounts[q] != null) tmp = computeContSplitFromCounts(f, rankCounts[q], none);
+			else tmp = getSplitAndIndex(f);
+			// same choice as scanning mtryVars in order: the largest drop, then the first variable
+			if(tmp.getIndex() > bestImpIndex || (tmp.getIndex() == bestImpIndex && q < bestPos)){
+				bestImpIndex = tmp.getIndex();
+				bestVar = f;
+				bestPos = q;
+				howToSplit = tmp;
+			}
+		}
+		return bestVar;
+	}
+
+	/**
+	 * The splits of a categorical variable are evaluated with the drop in impurity of each class against the others (see <code>CARTSplitter</code>),
+	 * so the bound is the largest drop of these two-class problems when the node is split in one child per level.
+	 * The variable is marked as constant if a single level appears in the node.
+	 */
+	private double getCatBound(int f, int[][] counts, int[] cur, int n){
+		int[] twoClasses = new int[2];
+		double res = Double.NEGATIVE_INFINITY;
+		int nLevels = 0;
+		for(int c = 0; c < cur.length; c++){
+			twoClasses[0] = n - cur[c];
+			twoClasses[1] = cur[c];
+			double bound = impurity.getImpurity(twoClasses, 0, n, 2);
+			nLevels = 0;
+			for(int[] levelCounts : counts){
+				int size = 0;
+				for(int k : levelCounts) size += k;
+				if(size > 0){
+					twoClasses[0] = size - levelCounts[c];
+					twoClasses[1] = levelCounts[c];
+					bound -= ((double) size) / n * impurity.getImpurity(twoClasses, 0, size, 2);
+					nLevels++;
+				}
+			}
+			res = Math.max(res, bound);
+		}
+		if(nLevels == 1) markConstant(f);
+		return res;
+	}
+}
@@ -28,55 +28,71 @@ along with jForest.  If not, see <http://www.gnu.org/licenses/>.
 */
 
 package be.uclouvain.mlg.jForest.splitting;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Hashtable;
 
-import be.uclouvain.mlg.jForest.splitting.index.Gini;
+import be.uclouvain.mlg.jForest.splitting.index.ImpurityIF;
 import be.uclouvain.mlg.jForest.splitting.split.CategoricalBinarySplit;
 import be.uclouvain.mlg.jForest.splitting.split.ContinuousBinarySplit;
 import be.uclouvain.mlg.jForest.splitting.split.UnivariateSplit;
 import be.uclouvain.mlg.jForest.splitting.tools.CatCount;
+import be.uclouvain.mlg.jForest.splitting.tools.GroupSweep;
 
 /**
- * CART like splits based on the drop in Gini.
+ * CART like splits based on the drop in impurity (Gini index by default).
  */
 public class CARTSplitter extends Binary1FeatureSplitter {
 	
+	private long[] keys = new long[0]; // reused by the nodes searched by this splitter
+	
+	/**
+	 * Creates a splitter scored by the Gini index
+	 */
+	public CARTSplitter(){
+		super();
+	}
+	
+	/**
+	 * @param impurity the impurity measure whose drop scores the splits
+	 */
+	public CARTSplitter(ImpurityIF impurity){
+		super(impurity);
+	}
+	
+	@Override
+	public Splitter newSplitter() {
+		return new CARTSplitter(impurity);
+	}
+	
 	@Override
 	protected UnivariateSplit getSplitAndIndex(int f) {
 		
-		int[] classes = d.getLabelLvls();
-		
 		UnivariateSplit res = new ContinuousBinarySplit(-1, Double.NEGATIVE_INFINITY, Double.NaN);
 
-		if(d.getIsCat()[f]){ // runs in O(nlevels * log(nlevels) + n)
-			for(int c : classes){
-				res = computeCatSplit(f, c, res); // res is updated only if new result is better than the one passed to the method
-			}
+		if(d.getIsCat()[f]){ // runs in O(nclasses * nlevels * log(nlevels) + n)
+			res = computeCatSplit(f, getLevelClassCounts(f), res); // one pass over the samples for all the classes
+		}
+		else if(d.getRanks(f) != null){ // runs in O(n * log n) on primitive keys
+			res = computeContSplitFromRanks(f, res);
 		}
 		else{ // runs in O(n * log n)
 			// get the values of in-bag samples for feature f and sort them
 			ValLabel[] sortedFeat = new ValLabel[sampleIds.length];
-			for(int i = 0; i < sampleIds.length; i++) sortedFeat[i] = new ValLabel(d.getData()[sampleIds[i]][f],d.getLabels()[sampleIds[i]]);
+			for(int i = 0; i < sampleIds.length; i++) sortedFeat[i] = new ValLabel(d.getValue(sampleIds[i],f),d.getLabels()[sampleIds[i]]);
 			Arrays.sort(sortedFeat);
+			if(sortedFeat.length > 0 && sortedFeat[0].val == sortedFeat[sortedFeat.length - 1].val) markConstant(f);
 
-			// all the different gini will be computed in two traversal of the sortedFeatList
-			Gini gCur = new Gini(d.getNumberOfClasses());
-			Gini gLeft = new Gini(d.getNumberOfClasses());
-			Gini gRight = new Gini(d.getNumberOfClasses());
-
-			for(ValLabel vl : sortedFeat){
-				gCur.addLabel(vl.label);
-				gRight.addLabel(vl.label);
-			}
+			// all the different impurities will be computed in two traversal of the sortedFeatList
+			int nClasses = d.getNumberOfClasses();
+			int[] cur = new int[nClasses];
+			for(ValLabel vl : sortedFeat) cur[vl.label]++;
+			double impCur = impurity.getImpurity(cur, 0, sortedFeat.length, nClasses);
 
+			int[] left = new int[nClasses];
 			for(int i = 0; i < sortedFeat.length - 1 ; i++){
 				double valL = sortedFeat[i].val;
 				double valR = sortedFeat[i+1].val;
-				gLeft.addLabel(sortedFeat[i].label);
-				gRight.removeLabel(sortedFeat[i].label);
-				double tmp = (valL == valR)?0:Gini.getGiniDrop(gCur, gLeft, gRight);
+				left[sortedFeat[i].label]++;
+				double tmp = (valL == valR)?0:impurity.getDrop(impCur, cur, sortedFeat.length, left, i + 1, nClasses);
 				if(tmp > res.getIndex()){
 					res = new ContinuousBinarySplit(f, tmp, (valL + valR) / 2);
 				}
@@ -88,23 +104,148 @@ public class CARTSplitter extends Binary1FeatureSplitter {
 	}
 	
 	/**
-	 * To create one VS all classification problem
-	 * Defines class of interest as 1 and all other classes as 0
+	 * Same as sorting the values of the in-bag samples, using the ranks cached in the data.
+	 * Each sample is packed as <i>(rank, label)</i> in a long, so that a primitive array is sorted.
+	 * The order of samples with the same value may differ but only the boundaries between different values are evaluated,
+	 * hence the split is the same.
 	 */
-	private static int getFakeLabel(int label, int classOfInterest){
-		return (label == classOfInterest)?1:0;
+	private UnivariateSplit computeContSplitFromRanks(int f, UnivariateSplit res){
+		int[] ranks = d.getRanks(f);
+		int[] labels = d.getLabels();
+		
+		int n = sampleIds.length;
+		long[] sorted = getKeyBuffer();
+		for(int i = 0; i < n; i++) sorted[i] = ((long) ranks[sampleIds[i]] << 32) | labels[sampleIds[i]];
+		Arrays.sort(sorted, 0, n);
+		return computeContSplitFromSortedKeys(f, sorted, n, res);
+	}
+
+	/**
+	 * @return a buffer of at least <code>sampleIds.length</code> keys (not cleared), kept from one node to the next
+	 */
+	protected long[] getKeyBuffer(){
+		if(keys.length < sampleIds.length) keys = new long[sampleIds.length];
+		return keys;
+	}
+
+	/**
+	 * Sweeps the in-bag samples sorted by value and evaluates the boundaries between different values.
+	 * @param f the variable
+	 * @param sorted the samples packed as <i>(rank, label)</i> (see <code>d.getRanks(f)</code>), in increasing order from index 0
+	 * @param n the number of samples in <code>sorted</code>
+	 * @param res the best split found so far
+	 * @return the best split among <code>res</code> and the thresholds of <code>f</code>
+	 */
+	protected UnivariateSplit computeContSplitFromSortedKeys(int f, long[] sorted, int n, UnivariateSplit res){
+		double[] values = d.getSortedValues(f);
+		if(n > 0 && values[(int) (sorted[0] >>> 32)] == values[(int) (sorted[n - 1] >>> 32)]) markConstant(f);
+		int nClasses = d.getNumberOfClasses();
+		int[] cur = new int[nClasses];
+		for(int i = 0; i < n; i++) cur[(int) sorted[i]]++;
+
+		double impCur = impurity.getImpurity(cur, 0, n, nClasses);
+
+		int[] left = new int[nClasses];
+		for(int i = 0; i < n - 1 ; i++){
+			double valL = values[(int) (sorted[i] >>> 32)];
+			double valR = values[(int) (sorted[i+1] >>> 32)];
+			left[(int) sorted[i]]++;
+			double tmp = (valL == valR)?0:impurity.getDrop(impCur, cur, n, left, i + 1, nClasses);
+			if(tmp > res.getIndex()){
+				res = new ContinuousBinarySplit(f, tmp, (valL + valR) / 2);
+			}
+		}
+		return res;
 	}
 	
-	private UnivariateSplit computeCatSplit(int f, int classOfInterest, UnivariateSplit curRes) {
-		Gini gCur = new Gini(2);
-		Gini gLeft = new Gini(2);
-		Gini gRight = new Gini(2);
-		
-		for(int i : sampleIds){
-			int l = getFakeLabel(d.getLabels()[i],classOfInterest);
-			gCur.addLabel(l);
-			gRight.addLabel(l);
+	/**
+	 * Counts the samples of the node by rank and class, in <i>O(n + nDistinct * nClasses)</i>.
+	 * @return <code>res[r * nClasses + c]</code> is the number of samples of class <i>c</i> whose value is <code>d.getSortedValues(f)[r]</code>
+	 * @pre the ranks of <code>f</code> are cached (<code>d.getRanks(f) != null</code>)
+	 */
+	protected int[] getRankClassCounts(int f){
+		int[] ranks = d.getRanks(f);
+		int[] labels = d.getLabels();
+		int nClasses = d.getNumberOfClasses();
+		int[] res = new int[d.getSortedValues(f).length * nClasses];
+		for(int i : sampleIds) res[ranks[i] * nClasses + labels[i]]++;
+		return res;
+	}
+
+	/**
+	 * Same split as sorting the values of the in-bag samples, from their counts by rank and class.
+	 * @param counts the counts of <code>getRankClassCounts(f)</code>
+	 * @param res the best split found so far
+	 * @return the best split among <code>res</code> and the thresholds of <code>f</code>
+	 */
+	protected UnivariateSplit computeContSplitFromCounts(int f, int[] counts, UnivariateSplit res){
+		double[] values = d.getSortedValues(f);
+		int nClasses = d.getNumberOfClasses();
+		int[] cur = new int[nClasses];
+		for(int k = 0; k < counts.length; k++) cur[k % nClasses] += counts[k];
+
+		GroupSweep sweep = new GroupSweep(f, res, impurity, cur, sampleIds.length, nClasses);
+		for(int r = 0; r < values.length; r++){
+			boolean empty = true;
+			for(int c = 0; c < nClasses && empty; c++) empty = counts[r * nClasses + c] == 0;
+			if(empty) continue;
+			sweep.nextGroup(values[r]);
+			for(int c = 0; c < nClasses; c++){
+				if(counts[r * nClasses + c] > 0) sweep.add(c, counts[r * nClasses + c]);
+			}
+		}
+		if(sweep.isConstant()) markConstant(f);
+		return sweep.finish();
+	}
+	
+	/**
+	 * Computes the contingency table of the levels of a categorical variable and the classes in the current node.
+	 * @return <code>res[l][c]</code> is the number of samples of class <i>c</i> whose value is the <i>l</i>-th level of <code>d.getLevelsOfCatVar(f)</code>
+	 */
+	protected int[][] getLevelClassCounts(int f){
+		int[] codes = d.getCatCodes(f);
+		int[] labels = d.getLabels();
+		int[][] res = new int[d.getLevelsOfCatVar(f).length][d.getNumberOfClasses()];
+		for(int i : sampleIds) res[codes[i]][labels[i]]++; // O(n)
+		return res;
+	}
+	
+	/**
+	 * Finds the best split of a categorical variable from its contingency table, with one ordering of the levels per class.
+	 * @param counts the table of <code>getLevelClassCounts(f)</code>
+	 * @param res the best split found so far
+	 * @return the best split among <code>res</code> and the splits of <code>f</code>
+	 */
+	protected UnivariateSplit computeCatSplit(int f, int[][] counts, UnivariateSplit res){
+		if(countLevels(counts) == 1) markConstant(f);
+		for(int c : d.getLabelLvls()){
+			res = computeCatSplit(f, c, counts, res); // res is updated only if new result is better than the one passed to the method
 		}
+		return res;
+	}
+	
+	/**
+	 * @return the number of levels which appear in the contingency table of a categorical variable
+	 */
+	private static int countLevels(int[][] counts){
+		int res = 0;
+		for(int[] levelCounts : counts){
+			for(int c : levelCounts){
+				if(c > 0){
+					res++;
+					break;
+				}
+			}
+		}
+		return res;
+	}
+	
+	/**
+	 * To create one VS all classification problem
+	 * Defines class of interest as 1 and all other classes as 0
+	 */
+	private UnivariateSplit computeCatSplit(int f, int classOfInterest, int[][] counts, UnivariateSplit curRes) {
+		int[] cur = new int[2], left = new int[2]; // the counts of the class of interest and of the other classes
 		
 		/*
 		 * Computational shortcut :
@@ -115,31 +256,31 @@ public class CARTSplitter extends Binary1FeatureSplitter {
 		 * Breiman, L., J. H. Friedman, R. A. Olshen, and C. J. Stone. Classification and Regression Trees. Chapman & Hall, Boca Raton, 1993.
 		 */
 		
-		Hashtable<Double, CatCount> catCountsHT = new Hashtable<Double,CatCount>();
-		for(double lvl : d.getLevelsOfCatVar(f)) catCountsHT.put(lvl, new CatCount(lvl, 1, 0)); // O(nlevels)
-		for(int i : sampleIds){
-			int fakeLabel = getFakeLabel(d.getLabels()[i], classOfInterest);
-			catCountsHT.get(d.getData()[i][f]).add(fakeLabel); // O(n)
+		double[] levels = d.getLevelsOfCatVar(f);
+		CatCount[] catCounts = new CatCount[levels.length];
+		for(int l = 0; l < levels.length; l++){ // O(nlevels * nclasses)
+			catCounts[l] = new CatCount(l, levels[l], 1, 0);
+			for(int c = 0; c < counts[l].length; c++){
+				if(counts[l][c] > 0) catCounts[l].add((c == classOfInterest)?1:0, counts[l][c]);
+			}
+			cur[catCounts[l].getC0()] += catCounts[l].getN0();
+			cur[catCounts[l].getC1()] += catCounts[l].getN1();
 		}
-		
-		CatCount[] catCounts = new CatCount[d.getLevelsOfCatVar(f).length];
-		for(int i = 0; i < catCounts.length; i++) catCounts[i] = catCountsHT.get(d.getLevelsOfCatVar(f)[i]);
+		int nCur = cur[0] + cur[1], nLeft = 0;
+		double impCur = impurity.getImpurity(cur, 0, nCur, 2);
 		
 		Arrays.sort(catCounts); // O(nlevels * log(nlevels))
 		
-		ArrayList<Double> curCatsLeft = new ArrayList<Double>(catCounts.length);
+		long[] curCatsLeft = new long[(catCounts.length + 63) / 64]; // bitset of the codes
 		for(int i = 0; i < catCounts.length-1; i++){ // O(nlevels)
-			curCatsLeft.add(catCounts[i].getLevel());
-			gLeft.addLabel(catCounts[i].getC0(), catCounts[i].getN0());
-			gLeft.addLabel(catCounts[i].getC1(), catCounts[i].getN1());
-			gRight.removeLabel(catCounts[i].getC0(), catCounts[i].getN0());
-			gRight.removeLabel(catCounts[i].getC1(), catCounts[i].getN1());
+			curCatsLeft[catCounts[i].getCode() >>> 6] |= 1L << catCounts[i].getCode();
+			left[catCounts[i].getC0()] += catCounts[i].getN0();
+			left[catCounts[i].getC1()] += catCounts[i].getN1();
+			nLeft += catCounts[i].getN0() + catCounts[i].getN1();
 			
-			double tmp = Gini.getGiniDrop(gCur, gLeft, gRight);
+			double tmp = impurity.getDrop(impCur, cur, nCur, left, nLeft, 2);
 			if(tmp > curRes.getIndex()){
-				double[] tmp2 = new double[curCatsLeft.size()];
-				for(int j = 0; j < tmp2.length; j++) tmp2[j] = curCatsLeft.get(j);
-				curRes = new CategoricalBinarySplit(f, tmp, tmp2);
+				curRes = new CategoricalBinarySplit(f, tmp, d.getLevelDictionary(f), curCatsLeft.clone());
 			}
 		}
 		return curRes;
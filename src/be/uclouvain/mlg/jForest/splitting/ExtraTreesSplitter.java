@@ -29,13 +29,12 @@ along with jForest.  If not, see <http://www.gnu.org/licenses/>.
 
 package be.uclouvain.mlg.jForest.splitting;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.Random;
-import java.util.TreeSet;
 
-import be.uclouvain.mlg.jForest.splitting.index.Gini;
+import be.uclouvain.mlg.jForest.data.LevelDictionary;
+import be.uclouvain.mlg.jForest.splitting.index.GiniKernels;
+import be.uclouvain.mlg.jForest.splitting.index.ImpurityIF;
 import be.uclouvain.mlg.jForest.splitting.split.CategoricalBinarySplit;
 import be.uclouvain.mlg.jForest.splitting.split.ContinuousBinarySplit;
 import be.uclouvain.mlg.jForest.splitting.split.UnivariateSplit;
@@ -44,11 +43,46 @@ import be.uclouvain.mlg.jForest.tree.Tree;
 /**
  * Extra trees like split as described in 
  * Geurts, P., Ernst, D., & Wehenkel, L. (2006). Extremely randomized trees. Machine Learning, 63(1), 3–42.
+ * <p>
+ * The values and class counts of a node are gathered in buffers reused by all the nodes searched by the splitter,
+ * so that a candidate variable is read once and no object is allocated but the split itself.
+ * Several random thresholds can be drawn per continuous variable: they are all evaluated in one pass over the samples of the node,
+ * and the best one is kept.
+ * </p>
  */
 public class ExtraTreesSplitter extends Binary1FeatureSplitter {
 
+	protected final int nbThresholds;
+	protected final Scratch scratch = new Scratch();
 	protected Random rnd;
 
+	/**
+	 * Creates a splitter scored by the Gini index, drawing one threshold per continuous variable as the original Extra-trees
+	 */
+	public ExtraTreesSplitter(){
+		super();
+		this.nbThresholds = 1;
+	}
+
+	/**
+	 * @param impurity the impurity measure whose drop scores the splits
+	 * @param nbThresholds the number of random thresholds drawn for each continuous variable, at least 1. The value 1 gives the original Extra-trees.
+	 */
+	public ExtraTreesSplitter(ImpurityIF impurity, int nbThresholds){
+		super(impurity);
+		this.nbThresholds = checkNbThresholds(nbThresholds);
+	}
+
+	@Override
+	public Splitter newSplitter() {
+		return new ExtraTreesSplitter(impurity, nbThresholds);
+	}
+
+	private static int checkNbThresholds(int k){
+		if(k < 1) throw new RuntimeException("The number of thresholds must be at least 1, not "+k+".");
+		return k;
+	}
+
 	@Override
 	public void init(Tree tree) {
 		super.init(tree);
@@ -63,85 +97,258 @@ public class ExtraTreesSplitter extends Binary1FeatureSplitter {
 	}
 
 	private UnivariateSplit getContSplitAndIndex(int f) {
-		// max and min value between which we sample uniformly a threshold
+		int n = sampleIds.length, nClasses = d.getNumberOfClasses();
+		int[] labels = d.getLabels();
+		double[] nodeValues = scratch.getValues(n);
+		int[] nodeLabels = scratch.getLabels(n);
+		int[] curCounts = scratch.getCurCounts(nClasses);
+
+		// max and min value between which we sample uniformly a threshold, found while gathering the values of the node
 		double min = Double.POSITIVE_INFINITY;
 		double max = Double.NEGATIVE_INFINITY;
-		Gini gCur = new Gini(d.getNumberOfClasses()); // gini of the current node
-		UnivariateSplit split;
-		
-		for(int i : sampleIds){
-			if(d.getData()[i][f] < min) min = d.getData()[i][f];
-			if(d.getData()[i][f] > max) max = d.getData()[i][f];
-			gCur.addLabel(d.getLabels()[i]);
+		for(int k = 0; k < n; k++){
+			int i = sampleIds[k];
+			double v = d.getValue(i,f);
+			if(v < min) min = v;
+			if(v > max) max = v;
+			nodeValues[k] = v;
+			nodeLabels[k] = labels[i];
+			curCounts[labels[i]]++;
 		}
-		
-		split = new ContinuousBinarySplit(f, -1, rnd.nextDouble() * (max - min) + min);
-		
-		double giniDrop = computeGiniDropForVar(f, split, gCur);
-		split.setIndex(giniDrop);
-		
-		return split;
+
+		return getRandomSplit(f, min, max, nodeValues, nodeLabels, null, n, curCounts, n);
+	}
+
+	/**
+	 * Draws the random thresholds of a continuous variable and computes their drop in impurity in one pass over the values of the node.
+	 * @param f the variable
+	 * @param min the minimal value of <code>f</code> in the node
+	 * @param max the maximal value of <code>f</code> in the node
+	 * @param values the values of the node
+	 * @param labels the label of each value
+	 * @param weights the number of samples having each value and label, or <code>null</code> if each value is one sample
+	 * @param m the number of values
+	 * @param curCounts the class counts of the node
+	 * @param nCur the number of samples of the node
+	 * @return the best split among the thresholds drawn (the first one in increasing order in case of tie)
+	 */
+	protected UnivariateSplit getRandomSplit(int f, double min, double max, double[] values, int[] labels, int[] weights, int m, int[] curCounts, int nCur){
+		int k = nbThresholds, nClasses = d.getNumberOfClasses();
+		if(min == max) markConstant(f); // the thresholds are still drawn, so that the random numbers do not depend on the tracking
+		if(k == 1){
+			double t = rnd.nextDouble() * (max - min) + min;
+			int[] left = scratch.getCounts(nClasses);
+			int nLeft = GiniKernels.countLower(values, labels, weights, m, t, left, 0, nClasses);
+			return new ContinuousBinarySplit(f, impurity.getDrop(impurity.getImpurity(curCounts, 0, nCur, nClasses), curCounts, nCur, left, nLeft, nClasses), t);
+		}
+
+		double[] thresholds = scratch.getThresholds(k);
+		for(int j = 0; j < k; j++) thresholds[j] = rnd.nextDouble() * (max - min) + min;
+		Arrays.sort(thresholds, 0, k);
+
+		// counts[b * nClasses + c] is the number of samples of class c whose value is in [thresholds[b-1] ; thresholds[b][
+		int[] counts = scratch.getCounts((k + 1) * nClasses);
+		for(int e = 0; e < m; e++){
+			double v = values[e];
+			int lo = 0, hi = k;
+			while(lo < hi){
+				int mid = (lo + hi) >>> 1;
+				if(v < thresholds[mid]) hi = mid;
+				else lo = mid + 1;
+			}
+			counts[lo * nClasses + labels[e]] += (weights == null) ? 1 : weights[e];
+		}
+
+		// the left child of thresholds[j] contains the buckets 0..j
+		int[] nLeft = scratch.getSizes(k);
+		for(int j = 0; j < k; j++){
+			nLeft[j] = 0;
+			for(int c = 0; c < nClasses; c++){
+				if(j > 0) counts[j * nClasses + c] += counts[(j - 1) * nClasses + c];
+				nLeft[j] += counts[j * nClasses + c];
+			}
+		}
+		double[] drops = scratch.getDrops(k);
+		impurity.getDrops(curCounts, nCur, counts, nLeft, k, nClasses, drops);
+		int best = 0;
+		for(int j = 1; j < k; j++){
+			if(drops[j] > drops[best]) best = j;
+		}
+		return new ContinuousBinarySplit(f, drops[best], thresholds[best]);
 	}
 
 	private UnivariateSplit getCatSplitAndIndex(int f){
-		// will contain the levels that appear in the current bag
-		TreeSet<Double> ts = new TreeSet<Double>();
-		Gini gCur = new Gini(d.getNumberOfClasses()); // gini of the current node
-		UnivariateSplit split;
+		// marks the levels that appear in the current bag
+		LevelDictionary levels = d.getLevelDictionary(f);
+		int[] codes = d.getCatCodes(f);
+		int[] labels = d.getLabels();
+		int nClasses = d.getNumberOfClasses();
+		int[] inBag = scratch.getMarks(levels.size());
+		int stamp = scratch.nextStamp();
+		int[] curCounts = scratch.getCurCounts(nClasses);
 		
+		int nInBag = 0;
 		for(int i : sampleIds){
-			ts.add(d.getData()[i][f]);
-			gCur.addLabel(d.getLabels()[i]);
+			if(inBag[codes[i]] != stamp) nInBag++;
+			inBag[codes[i]] = stamp;
+			curCounts[labels[i]]++;
 		}
+		if(nInBag == 1) markConstant(f);
 		
-		// pick up a label at random
-		LinkedList<Double> inBagLabels = new LinkedList<Double>();
-		for(double d : ts) inBagLabels.add(d);
-		
-		double[] lvlsOfVar = d.getLevelsOfCatVar(f);
-		ArrayList<Double> featLabels = new ArrayList<Double>(lvlsOfVar.length);
-		for(double l : lvlsOfVar) featLabels.add(l);
-		
-		double[] catLeft = new double[0];
-		while(!contains(catLeft, inBagLabels)){
-			Collections.shuffle(featLabels,rnd);
-			catLeft = new double[rnd.nextInt(featLabels.size())+1];
-			for(int i = 0; i < catLeft.length; i++) catLeft[i] = featLabels.get(i);
+		// shuffle the levels and keep a random number of them, until one of them is in the bag
+		int nLevels = levels.size();
+		int[] featLabels = scratch.getOrder(nLevels);
+		for(int c = 0; c < nLevels; c++) featLabels[c] = c;
+		long[] catLeft = null;
+		while(catLeft == null){
+			for(int i = nLevels; i > 1; i--){ // same draws as Collections.shuffle
+				int j = rnd.nextInt(i), tmp = featLabels[i - 1];
+				featLabels[i - 1] = featLabels[j];
+				featLabels[j] = tmp;
+			}
+			int nLeft = rnd.nextInt(nLevels)+1;
+			for(int i = 0; i < nLeft; i++){
+				if(inBag[featLabels[i]] == stamp){
+					catLeft = new long[(nLevels + 63) / 64];
+					for(int k = 0; k < nLeft; k++) catLeft[featLabels[k] >>> 6] |= 1L << featLabels[k];
+					break;
+				}
+			}
 		}
 		
-		split = new CategoricalBinarySplit(f, -1, catLeft);
+		UnivariateSplit split = new CategoricalBinarySplit(f, -1, levels, catLeft);
 		
 		// compute gini drop
-		double giniDrop = computeGiniDropForVar(f, split, gCur);
-		split.setIndex(giniDrop);
+		int[] left = scratch.getCounts(nClasses);
+		int nLeft = 0;
+		for(int i : sampleIds){
+			if(split.getChildIdFor(d, i) == 0){
+				left[labels[i]]++;
+				nLeft++;
+			}
+		}
+		split.setIndex(impurity.getDrop(impurity.getImpurity(curCounts, 0, sampleIds.length, nClasses), curCounts, sampleIds.length, left, nLeft, nClasses));
 
 		return split;
 	}
 
 	/**
-	 * Computes the GiniDrop for variable f in current node
-	 * @param f is the variable on which the gini drop is computed
-	 * @param split is the way variable f is split
-	 * @param gCur is the gini of the current node
-	 * @return the drop in gini while splitting variable f according to split in current node
+	 * Buffers of a splitter, grown when needed.
+	 * A buffer is only valid during the evaluation of one variable.
 	 */
-	private double computeGiniDropForVar(int f, UnivariateSplit split, Gini gCur){
-		Gini gLeft = new Gini(d.getNumberOfClasses());
-		Gini gRight = new Gini(d.getNumberOfClasses());
-		for(int i : sampleIds){
-			if(split.getChildIdFor(d.getData()[i][f]) == 0) gLeft.addLabel(d.getLabels()[i]);
-			else gRight.addLabel(d.getLabels()[i]);
+	protected static final class Scratch {
+
+		private double[] values = new double[0], thresholds = new double[0], drops = new double[0];
+		private int[] labels = new int[0], weights = new int[0], sizes = new int[0], curCounts = new int[0], counts = new int[0], order = new int[0], marks = new int[0];
+		private int stamp = 0;
+
+		private Scratch(){}
+
+		/**
+		 * @param size the number of values needed
+		 * @return a buffer of values (not cleared)
+		 */
+		public double[] getValues(int size){
+			if(values.length < size) values = new double[Math.max(size, 2 * values.length)];
+			return values;
 		}
-		double giniDrop = Gini.getGiniDrop(gCur, gLeft, gRight);
-		return giniDrop;
-	}
-	
-	private static boolean contains(double[] goingToLeft, LinkedList<Double> inBagLabels){
-		for(double l : goingToLeft){
-			for(double in : inBagLabels){
-				if(l == in) return true;
+
+		/**
+		 * @param size the number of labels needed
+		 * @return a buffer of labels (not cleared)
+		 */
+		public int[] getLabels(int size){
+			if(labels.length < size) labels = new int[Math.max(size, 2 * labels.length)];
+			return labels;
+		}
+
+		/**
+		 * @param size the number of weights needed
+		 * @return a buffer of weights (not cleared)
+		 */
+		public int[] getWeights(int size){
+			if(weights.length < size) weights = new int[Math.max(size, 2 * weights.length)];
+			return weights;
+		}
+
+		/**
+		 * @param size the number of classes
+		 * @return a buffer for the class counts of the node, whose <code>size</code> first elements are 0
+		 */
+		public int[] getCurCounts(int size){
+			if(curCounts.length < size) curCounts = new int[size];
+			else Arrays.fill(curCounts, 0, size, 0);
+			return curCounts;
+		}
+
+		/**
+		 * @param size the number of counts needed
+		 * @return a buffer of counts, whose <code>size</code> first elements are 0
+		 */
+		public int[] getCounts(int size){
+			if(counts.length < size) counts = new int[Math.max(size, 2 * counts.length)];
+			else Arrays.fill(counts, 0, size, 0);
+			return counts;
+		}
+
+		/**
+		 * @param size the number of thresholds needed
+		 * @return a buffer of thresholds (not cleared)
+		 */
+		public double[] getThresholds(int size){
+			if(thresholds.length < size) thresholds = new double[size];
+			return thresholds;
+		}
+
+		/**
+		 * @param size the number of splits evaluated
+		 * @return a buffer for the sizes of the left children (not cleared)
+		 */
+		public int[] getSizes(int size){
+			if(sizes.length < size) sizes = new int[size];
+			return sizes;
+		}
+
+		/**
+		 * @param size the number of splits evaluated
+		 * @return a buffer of drops in impurity (not cleared)
+		 */
+		public double[] getDrops(int size){
+			if(drops.length < size) drops = new double[size];
+			return drops;
+		}
+
+		/**
+		 * @param size the number of levels
+		 * @return a buffer for a permutation of the levels (not cleared)
+		 */
+		public int[] getOrder(int size){
+			if(order.length < size) order = new int[Math.max(size, 2 * order.length)];
+			return order;
+		}
+
+		/**
+		 * A level is marked by writing the current stamp (see <code>nextStamp()</code>) at its index, so that the buffer never needs to be cleared.
+		 * @param size the number of levels
+		 * @return a buffer of marks
+		 */
+		public int[] getMarks(int size){
+			if(marks.length < size){
+				marks = new int[Math.max(size, 2 * marks.length)];
+				stamp = 0;
+			}
+			return marks;
+		}
+
+		/**
+		 * @return a stamp different from all the ones written in the buffer of marks
+		 */
+		public int nextStamp(){
+			if(++stamp == 0){ // wrapped around after 2^32 calls
+				Arrays.fill(marks, 0);
+				stamp = 1;
 			}
+			return stamp;
 		}
-		return false;
 	}
 }
@@ -0,0 +1,223 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.splitting;
+
+import be.uclouvain.mlg.jForest.splitting.index.GiniImpurity;
+import be.uclouvain.mlg.jForest.splitting.index.ImpurityIF;
+import be.uclouvain.mlg.jForest.splitting.split.ContinuousBinarySplit;
+import be.uclouvain.mlg.jForest.splitting.split.UnivariateSplit;
+import be.uclouvain.mlg.jForest.splitting.tools.StrategyCounts;
+
+/**
+ * CART like splits where the search of the threshold of a continuous variable is chosen per node,
+ * from the number of samples of the node and the number of distinct values of the variable:
+ * <ul>
+ * <li><code>TINY</code>: nodes of at most <code>tinyNodeSize</code> samples (16 by default) are sorted by insertion;</li>
+ * <li><code>COUNTING</code>: when the variable has few distinct values compared to the node, the samples are counted by value and class;</li>
+ * <li><code>HISTOGRAM</code>: nodes of at least <code>histogramNodeSize</code> samples are counted in <code>nbBins</code> bins of values (256 by default),
+ *     only the boundaries between bins are evaluated. By default, histograms are never used;</li>
+ * <li><code>SORT</code>: otherwise, the samples are sorted as in {@link CARTSplitter}.</li>
+ * </ul>
+ * All the strategies but <code>HISTOGRAM</code> find the same split as <code>CARTSplitter</code>.
+ * Categorical variables and data without cached ranks (see <code>Data.setRankCache(boolean cacheRanks)</code>) are handled as in <code>CARTSplitter</code>,
+ * and counted as <code>SORT</code>.
+ * The number of variables searched with each strategy is counted (see <code>getStrategyCounts()</code>) to help choosing the thresholds.
+ * The counters are shared by a splitter and the splitters it creates with <code>newSplitter()</code>, so the counts of a forest
+ * are read on the splitter given to the forest as a prototype.
+ */
+public class HybridCARTSplitter extends CARTSplitter {
+
+	public static final int TINY = 0;
+	public static final int COUNTING = 1;
+	public static final int SORT = 2;
+	public static final int HISTOGRAM = 3;
+
+	private static final int DEFAULT_TINY_NODE_SIZE = 16;
+	private static final int DEFAULT_HISTOGRAM_NODE_SIZE = Integer.MAX_VALUE;
+	private static final int DEFAULT_NB_BINS = 256;
+
+	private final int tinyNodeSize, histogramNodeSize, nbBins;
+	private final StrategyCounts strategyCounts;
+
+	/**
+	 * Creates a splitter scored by the Gini index with the default sizes, which never uses histograms
+	 */
+	public HybridCARTSplitter(){
+		this(new GiniImpurity(), DEFAULT_TINY_NODE_SIZE, DEFAULT_HISTOGRAM_NODE_SIZE, DEFAULT_NB_BINS);
+	}
+
+	/**
+	 * @param impurity the impurity measure whose drop scores the splits
+	 * @param tinyNodeSize the number of samples under which nodes are sorted by insertion
+	 * @param histogramNodeSize the number of samples from which the thresholds are searched on histograms
+	 * @param nbBins the number of bins of the histograms
+	 */
+	public HybridCARTSplitter(ImpurityIF impurity, int tinyNodeSize, int histogramNodeSize, int nbBins){
+		this(impurity, tinyNodeSize, histogramNodeSize, nbBins, new StrategyCounts(4));
+	}
+
+	/**
+	 * @param impurity the impurity measure whose drop scores the splits
+	 * @param tinyNodeSize the number of samples under which nodes are sorted by insertion
+	 * @param histogramNodeSize the number of samples from which the thresholds are searched on histograms
+	 * @param nbBins the number of bins of the histograms
+	 * @param strategyCounts the counters of the strategies used, indexed by <code>TINY</code>, <code>COUNTING</code>, <code>SORT</code> and <code>HISTOGRAM</code>
+	 */
+	public HybridCARTSplitter(ImpurityIF impurity, int tinyNodeSize, int histogramNodeSize, int nbBins, StrategyCounts strategyCounts){
+		super(impurity);
+		if(strategyCounts == null || strategyCounts.getCounts().length != 4) throw new RuntimeException("The strategy counters must count 4 strategies.");
+		this.tinyNodeSize = checkTinyNodeSize(tinyNodeSize);
+		this.histogramNodeSize = checkHistogramNodeSize(histogramNodeSize);
+		this.nbBins = checkNbBins(nbBins);
+		this.strategyCounts = strategyCounts;
+	}
+
+	@Override
+	public Splitter newSplitter() {
+		return new HybridCARTSplitter(impurity, tinyNodeSize, histogramNodeSize, nbBins, strategyCounts);
+	}
+
+	private static int checkTinyNodeSize(int size){
+		if(size < 0) throw new RuntimeException("The size of tiny nodes must be positive, not "+size+".");
+		return size;
+	}
+
+	private static int checkHistogramNodeSize(int size){
+		if(size < 1) throw new RuntimeException("The size of histogram nodes must be at least 1, not "+size+".");
+		return size;
+	}
+
+	private static int checkNbBins(int nBins){
+		if(nBins < 2) throw new RuntimeException("The number of bins must be at least 2, not "+nBins+".");
+		return nBins;
+	}
+
+	/**
+	 * @return the counters of the number of variables searched with each strategy (<code>TINY</code>, <code>COUNTING</code>, <code>SORT</code> or <code>HISTOGRAM</code>),
+	 *         shared with the splitters created by <code>newSplitter()</code>
+	 */
+	public StrategyCounts getStrategyCounts(){
+		return strategyCounts;
+	}
+
+	@Override
+	protected UnivariateSplit getSplitAndIndex(int f) {
+		if(d.getIsCat()[f] || d.getRanks(f) == null){
+			strategyCounts.increment(SORT);
+			return super.getSplitAndIndex(f);
+		}
+
+		int n = sampleIds.length;
+		int nDistinct = d.getSortedValues(f).length;
+		UnivariateSplit res = new ContinuousBinarySplit(-1, Double.NEGATIVE_INFINITY, Double.NaN);
+		if(n <= tinyNodeSize){
+			strategyCounts.increment(TINY);
+			return computeContSplitFromSortedKeys(f, insertionSort(f), n, res);
+		}
+		if((long) nDistinct * d.getNumberOfClasses() <= n){ // the table of counts is smaller than the node
+			strategyCounts.increment(COUNTING);
+			return computeContSplitFromCounts(f, getRankClassCounts(f), res);
+		}
+		if(n >= histogramNodeSize && nDistinct > nbBins){
+			UnivariateSplit hist = computeContSplitFromHistogram(f, res);
+			if(hist != null){
+				strategyCounts.increment(HISTOGRAM);
+				return hist;
+			}
+		}
+		strategyCounts.increment(SORT);
+		return super.getSplitAndIndex(f);
+	}
+
+	/**
+	 * @return the samples of the node packed as <i>(rank, label)</i> in increasing order, at the beginning of the key buffer
+	 */
+	private long[] insertionSort(int f){
+		int[] ranks = d.getRanks(f);
+		int[] labels = d.getLabels();
+		long[] res = getKeyBuffer();
+		for(int i = 0; i < sampleIds.length; i++){
+			long key = ((long) ranks[sampleIds[i]] << 32) | labels[sampleIds[i]];
+			int j = i;
+			for(; j > 0 && res[j - 1] > key; j--) res[j] = res[j - 1];
+			res[j] = key;
+		}
+		return res;
+	}
+
+	/**
+	 * Counts the samples of the node by class in <code>nbBins</code> bins of ranks, in <i>O(n + nbBins * nClasses)</i>.
+	 * The threshold between two bins is the middle of the largest value of the first one and the smallest value of the second one.
+	 * @return the best split, or <code>null</code> when all the samples fall in one bin
+	 */
+	private UnivariateSplit computeContSplitFromHistogram(int f, UnivariateSplit res){
+		int[] ranks = d.getRanks(f);
+		double[] values = d.getSortedValues(f);
+		int[] labels = d.getLabels();
+		int nClasses = d.getNumberOfClasses();
+		int nBins = nbBins;
+
+		int[] counts = new int[nBins * nClasses];
+		int[] sizes = new int[nBins];
+		int[] minRank = new int[nBins];
+		int[] maxRank = new int[nBins];
+		int[] cur = new int[nClasses];
+		for(int i : sampleIds){
+			int r = ranks[i];
+			int b = (int) ((long) r * nBins / values.length);
+			if(sizes[b]++ == 0){
+				minRank[b] = r;
+				maxRank[b] = r;
+			}
+			else if(r < minRank[b]) minRank[b] = r;
+			else if(r > maxRank[b]) maxRank[b] = r;
+			counts[b * nClasses + labels[i]]++;
+			cur[labels[i]]++;
+		}
+
+		int nCur = sampleIds.length;
+		double impCur = impurity.getImpurity(cur, 0, nCur, nClasses);
+		int[] left = new int[nClasses];
+		int nLeft = 0, prev = -1;
+		for(int b = 0; b < nBins; b++){
+			if(sizes[b] == 0) continue;
+			if(prev >= 0){
+				double tmp = impurity.getDrop(impCur, cur, nCur, left, nLeft, nClasses);
+				if(tmp > res.getIndex()){
+					res = new ContinuousBinarySplit(f, tmp, (values[maxRank[prev]] + values[minRank[b]]) / 2);
+				}
+			}
+			for(int c = 0; c < nClasses; c++) left[c] += counts[b * nClasses + c];
+			nLeft += sizes[b];
+			prev = b;
+		}
+		return (nLeft == sizes[prev]) ? null : res;
+	}
+}
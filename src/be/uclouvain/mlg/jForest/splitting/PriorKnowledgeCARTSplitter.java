@@ -29,6 +29,7 @@ along with jForest.  If not, see <http://www.gnu.org/licenses/>.
 
 package be.uclouvain.mlg.jForest.splitting;
 
+import be.uclouvain.mlg.jForest.splitting.index.ImpurityIF;
 import be.uclouvain.mlg.jForest.splitting.split.UnivariateSplit;
 
 /**
@@ -38,24 +39,35 @@ import be.uclouvain.mlg.jForest.splitting.split.UnivariateSplit;
  */
 public class PriorKnowledgeCARTSplitter extends CARTSplitter {
 	
-	private static double coef = 0.8; // default value in RRF package cf. arXiv:1306.0237 and http://cran.r-project.org/web/packages/RRF/
-	private static boolean[] isFavoredFeature;
+	private static final double DEFAULT_COEF = 0.8; // default value in RRF package cf. arXiv:1306.0237 and http://cran.r-project.org/web/packages/RRF/
+	
+	private final double coef;
+	private final boolean[] isFavoredFeature;
 	
 	/**
-	 * Sets the multiplicative constant to penalize features
-	 * @param c a number between 0 and 1. The smaller <code>c</code> the more penalized the features
+	 * Creates a splitter penalizing the features which are not favored with the default constant 0.8
+	 * @param impurity the impurity measure whose drop scores the splits
+	 * @param isFavoredFeature <code>isFavoredFeature[i]</code> iff variable <code>i</code> is not penalized
 	 */
-	public static void setCoef(double c){
-		coef = c;
+	public PriorKnowledgeCARTSplitter(ImpurityIF impurity, boolean[] isFavoredFeature){
+		this(impurity, DEFAULT_COEF, isFavoredFeature);
 	}
 	
 	/**
-	 * Sets the features to favor.
-	 * Those variables which are favored are not penalized (the original gini drop value is kept).
-	 * @param featToFavor <code>featToFavor[i]</code> iff variable <code>i</code> is not penalized.  
+	 * @param impurity the impurity measure whose drop scores the splits
+	 * @param coef a number between 0 and 1. The smaller <code>coef</code> the more penalized the features
+	 * @param isFavoredFeature <code>isFavoredFeature[i]</code> iff variable <code>i</code> is not penalized
 	 */
-	public static void setFeatureToFavor(boolean[] featToFavor){
-		isFavoredFeature = featToFavor;
+	public PriorKnowledgeCARTSplitter(ImpurityIF impurity, double coef, boolean[] isFavoredFeature){
+		super(impurity);
+		if(isFavoredFeature == null) throw new RuntimeException("The features to favor must be given.");
+		this.coef = coef;
+		this.isFavoredFeature = isFavoredFeature;
+	}
+	
+	@Override
+	public Splitter newSplitter() {
+		return new PriorKnowledgeCARTSplitter(impurity, coef, isFavoredFeature);
 	}
 	
 	@Override
@@ -0,0 +1,63 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.splitting;
+
+/**
+ * Creates splitters of a class with its default constructor, <i>i.e.</i> with the default settings of that class.
+ * The splitters with other settings are created from a configured prototype (see <code>Splitter.newSplitter()</code>).
+ */
+public class ReflectiveSplitterFactory implements SplitterFactoryIF {
+
+	private final Class<? extends Splitter> splitterClass;
+
+	/**
+	 * @param splitterClass a concrete subclass of {@link Splitter} with a public default constructor
+	 */
+	public ReflectiveSplitterFactory(Class<? extends Splitter> splitterClass){
+		if(splitterClass == null) throw new RuntimeException("The class of the splitters cannot be null.");
+		this.splitterClass = splitterClass;
+	}
+
+	@Override
+	public Splitter newSplitter() {
+		try {
+			return splitterClass.newInstance();
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new RuntimeException("Cannot create a splitter of class "+splitterClass.getName()+".", e);
+		}
+	}
+
+	/**
+	 * @return the class of the splitters created
+	 */
+	public Class<? extends Splitter> getSplitterClass(){
+		return splitterClass;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.splitting;
+
+import java.util.Arrays;
+
+import be.uclouvain.mlg.jForest.data.SparseData;
+import be.uclouvain.mlg.jForest.splitting.index.ImpurityIF;
+import be.uclouvain.mlg.jForest.splitting.split.ContinuousBinarySplit;
+import be.uclouvain.mlg.jForest.splitting.split.UnivariateSplit;
+import be.uclouvain.mlg.jForest.splitting.tools.GroupSweep;
+import be.uclouvain.mlg.jForest.splitting.tools.SparseNode;
+
+/**
+ * CART like splits for a {@link SparseData}.
+ * For a continuous variable, only the non-zero values of the node are sorted: the samples with value 0 form one block
+ * whose class counts are deduced from the ones of the node, and which is inserted between the negative and the positive values.
+ * The splits are the same as the ones of {@link CARTSplitter} on the dense data.
+ * Categorical variables are split as in {@link CARTSplitter}.
+ */
+public class SparseCARTSplitter extends CARTSplitter {
+
+	private SparseNode node;
+
+	/**
+	 * Creates a splitter scored by the Gini index
+	 */
+	public SparseCARTSplitter(){
+		super();
+	}
+
+	/**
+	 * @param impurity the impurity measure whose drop scores the splits
+	 */
+	public SparseCARTSplitter(ImpurityIF impurity){
+		super(impurity);
+	}
+
+	@Override
+	public Splitter newSplitter() {
+		return new SparseCARTSplitter(impurity);
+	}
+
+	@Override
+	public void findBestSplit() {
+		if(!(d instanceof SparseData)) throw new RuntimeException(getClass().getSimpleName()+" can only split a SparseData.");
+		node = new SparseNode((SparseData) d, sampleIds);
+		try{
+			super.findBestSplit();
+		}finally{
+			node.release();
+			node = null;
+		}
+	}
+
+	@Override
+	protected UnivariateSplit getSplitAndIndex(int f) {
+		if(d.getIsCat()[f]) return super.getSplitAndIndex(f);
+
+		SparseData sd = (SparseData) d;
+		int[] ranks = sd.getNonZeroRanks(f);
+		double[] values = sd.getSortedNonZeroValues(f);
+		int[] labels = d.getLabels();
+		int start = sd.getColPtr()[f];
+
+		// runs in O(m * log m) where m is the number of samples of the node with a non-zero value
+		int m = node.extract(f);
+		long[] sorted = new long[m];
+		for(int k = 0; k < m; k++) sorted[k] = ((long) ranks[node.getPos(k) - start] << 32) | k;
+		Arrays.sort(sorted);
+		int[] zeroCounts = node.getZeroClassCounts(labels);
+		int nZero = node.getNbSamples();
+		for(int k = 0; k < m; k++) nZero -= node.getMultiplicity(k);
+
+		// the samples are visited by groups of equal values, only the boundaries between groups are evaluated
+		GroupSweep sweep = new GroupSweep(f, new ContinuousBinarySplit(-1, Double.NEGATIVE_INFINITY, Double.NaN), impurity, node.getClassCounts(), node.getNbSamples(), d.getNumberOfClasses());
+		boolean zeroDone = nZero == 0;
+		int k = 0;
+		while(k < m || !zeroDone){
+			if(!zeroDone && (k == m || values[(int) (sorted[k] >>> 32)] > 0)){
+				sweep.nextGroup(0);
+				for(int c = 0; c < zeroCounts.length; c++) sweep.add(c, zeroCounts[c]);
+				zeroDone = true;
+			}
+			else{
+				long rank = sorted[k] >>> 32;
+				sweep.nextGroup(values[(int) rank]);
+				for(; k < m && (sorted[k] >>> 32) == rank; k++){
+					int e = (int) sorted[k];
+					sweep.add(labels[node.getRow(e)], node.getMultiplicity(e));
+				}
+			}
+		}
+
+		if(sweep.isConstant()) markConstant(f);
+		return sweep.finish();
+	}
+
+	@Override
+	protected int[] computeChildIds() {
+		return node.getChildIds(howToSplit, sampleIds);
+	}
+}
@@ -0,0 +1,128 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.splitting;
+
+import be.uclouvain.mlg.jForest.data.SparseData;
+import be.uclouvain.mlg.jForest.splitting.index.ImpurityIF;
+import be.uclouvain.mlg.jForest.splitting.split.UnivariateSplit;
+import be.uclouvain.mlg.jForest.splitting.tools.SparseNode;
+
+/**
+ * Extra trees like splits for a {@link SparseData}.
+ * For a continuous variable, the bounds of the threshold and the Gini drop are computed from the non-zero values of the node,
+ * the samples with value 0 being counted as one block.
+ * The same random numbers are drawn as in {@link ExtraTreesSplitter}, so that the splits are the same as on the dense data
+ * (including with several thresholds per variable).
+ * Categorical variables are split as in {@link ExtraTreesSplitter}.
+ */
+public class SparseExtraTreesSplitter extends ExtraTreesSplitter {
+
+	private SparseNode node;
+
+	/**
+	 * Creates a splitter scored by the Gini index, drawing one threshold per continuous variable as the original Extra-trees
+	 */
+	public SparseExtraTreesSplitter(){
+		super();
+	}
+
+	/**
+	 * @param impurity the impurity measure whose drop scores the splits
+	 * @param nbThresholds the number of random thresholds drawn for each continuous variable
+	 */
+	public SparseExtraTreesSplitter(ImpurityIF impurity, int nbThresholds){
+		super(impurity, nbThresholds);
+	}
+
+	@Override
+	public Splitter newSplitter() {
+		return new SparseExtraTreesSplitter(impurity, nbThresholds);
+	}
+
+	@Override
+	public void findBestSplit() {
+		if(!(d instanceof SparseData)) throw new RuntimeException(getClass().getSimpleName()+" can only split a SparseData.");
+		node = new SparseNode((SparseData) d, sampleIds);
+		try{
+			super.findBestSplit();
+		}finally{
+			node.release();
+			node = null;
+		}
+	}
+
+	@Override
+	protected UnivariateSplit getSplitAndIndex(int f) {
+		if(d.getIsCat()[f]) return super.getSplitAndIndex(f);
+
+		double[] values = ((SparseData) d).getNonZeroValues();
+		int[] labels = d.getLabels();
+		int nClasses = d.getNumberOfClasses();
+		int m = node.extract(f);
+		int[] zeroCounts = node.getZeroClassCounts(labels);
+
+		// the non-zero values of the node, followed by the zero block as one weighted entry per class
+		double[] nodeValues = scratch.getValues(m + nClasses);
+		int[] nodeLabels = scratch.getLabels(m + nClasses);
+		int[] weights = scratch.getWeights(m + nClasses);
+		int nZero = node.getNbSamples();
+		for(int k = 0; k < m; k++){
+			nodeValues[k] = values[node.getPos(k)];
+			nodeLabels[k] = labels[node.getRow(k)];
+			weights[k] = node.getMultiplicity(k);
+			nZero -= weights[k];
+		}
+		int nEntries = m;
+		for(int c = 0; c < nClasses; c++){
+			if(zeroCounts[c] > 0){
+				nodeValues[nEntries] = 0;
+				nodeLabels[nEntries] = c;
+				weights[nEntries] = zeroCounts[c];
+				nEntries++;
+			}
+		}
+
+		// max and min value between which we sample uniformly a threshold
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		if(nZero > 0) min = max = 0;
+		for(int k = 0; k < m; k++){
+			if(nodeValues[k] < min) min = nodeValues[k];
+			if(nodeValues[k] > max) max = nodeValues[k];
+		}
+
+		return getRandomSplit(f, min, max, nodeValues, nodeLabels, weights, nEntries, node.getClassCounts(), node.getNbSamples());
+	}
+
+	@Override
+	protected int[] computeChildIds() {
+		return node.getChildIds(howToSplit, sampleIds);
+	}
+}
@@ -35,9 +35,11 @@ import be.uclouvain.mlg.jForest.tree.Tree;
 
 /**
  * This class is an abstract implementation of splitter objects 
- * that are used at each node to find the best split and then apply it to data
+ * that are used at each node to find the best split and then apply it to data.
+ * A splitter is reused for the successive nodes grown by a thread (see {@link SplitterFactoryIF}),
+ * so the state of a node is reset by <code>init(Tree tree)</code> and only the configuration and the buffers are kept between nodes.
  */
-public abstract class Splitter{
+public abstract class Splitter implements SplitterFactoryIF {
 	
 	protected Data d;
 	protected int[] mtryVars;
@@ -48,10 +50,12 @@ public abstract class Splitter{
 	protected UnivariateSplit howToSplit;
 	
 	private int[][] repartition;
+	private boolean[] constantVars;
+	private boolean ownConstantVars;
 	
 	
 	/**
-	 * Initializes the current object which is created using the default constructor
+	 * Initializes the current object for a new node. The results of the previous node are discarded.
 	 * @param tree The split is operated in the root node of tree
 	 */
 	public void init(Tree tree){
@@ -59,9 +63,50 @@ public abstract class Splitter{
 		this.mtryVars = tree.getMtryVars();
 		this.sampleIds = tree.getSampleIds();
 		this.repartition = null;
+		this.constantVars = tree.getConstantVars();
+		this.ownConstantVars = false;
 		bestImpIndex = 0; // to be changed in findBestSplit
 	}
 	
+	/**
+	 * Every concrete subclass must override it, so that the splitters created are of its class.
+	 * @return a new splitter with the same configuration as the current object, which does not share its buffers
+	 */
+	@Override
+	public abstract Splitter newSplitter();
+	
+	/**
+	 * @param f the index of a variable
+	 * @return <code>true</code> if <code>f</code> is known to be constant on the samples of the node
+	 */
+	protected boolean isConstant(int f){
+		return constantVars != null && constantVars[f];
+	}
+	
+	/**
+	 * Records that a variable takes a single value on the samples of the node, so that it is not drawn again in the descendants of the node.
+	 * Subclasses should call it when it is found at no cost while searching a split.
+	 * @param f the index of a variable
+	 */
+	protected void markConstant(int f){
+		if(isConstant(f)) return;
+		if(!ownConstantVars){ // the array of the parent node is shared by its children, it is copied before the first change
+			constantVars = (constantVars == null) ? new boolean[d.getP()] : constantVars.clone();
+			ownConstantVars = true;
+		}
+		constantVars[f] = true;
+	}
+	
+	/**
+	 * @return <code>res[f]</code> is <code>true</code> if variable <code>f</code> is known to be constant on the samples of the node,
+	 *         or <code>null</code> if no variable is known to be constant.
+	 *         It must not be modified since it can be shared with the parent node.
+	 * @pre <code>findBestSplit()</code> was previously called on the current object
+	 */
+	public boolean[] getConstantVars(){
+		return constantVars;
+	}
+	
 	/**
 	 * Learn the best split.
 	 * @pre The current object must be initialized with <code>init(Tree tree)</code> before calling this method.
@@ -90,7 +135,19 @@ public abstract class Splitter{
 	 * @pre <code>findBestSplit()</code> was previously called on the current object
 	 */
 	public int getChildIdFor(int trainingSampleId){
-		return getChildIdFor(d.getData()[trainingSampleId]);
+		return howToSplit.getChildIdFor(d, trainingSampleId);
+	}
+	
+	/**
+	 * Computes the child of every sample of the node. Called once by <code>getRepartition()</code>.
+	 * Subclasses can override it when reading the values one by one is costly (<i>e.g.</i> for sparse data).
+	 * @return <code>res[i]</code> is the index of the child in which <code>sampleIds[i]</code> falls into
+	 * @pre <code>findBestSplit()</code> was previously called on the current object
+	 */
+	protected int[] computeChildIds(){
+		int[] res = new int[sampleIds.length];
+		for(int i = 0; i < sampleIds.length; i++) res[i] = getChildIdFor(sampleIds[i]);
+		return res;
 	}
 	
 	/**
@@ -102,16 +159,17 @@ public abstract class Splitter{
 	public int[][] getRepartition(){
 		if(repartition == null){
 			// putting in an arrayList and then converting to int[][] has the same complexity
+			int[] childIds = computeChildIds(); // O(|sampleIds|)
 			int[] c = new int[nbChildren];
-			for(int i : sampleIds) c[getChildIdFor(i)]++; // O(|sampleIds|)
+			for(int child : childIds) c[child]++;
 			repartition = new int[nbChildren][];
 			for(int i = 0; i < repartition.length; i++){ // O(|nbChildren|)
 				repartition[i] = new int[c[i]];
 				c[i] = 0;
 			}
-			for(int i : sampleIds){ // O(|sampleIds|)
-				int tmp = getChildIdFor(i);
-				repartition[tmp][c[tmp]] = i;
+			for(int i = 0; i < sampleIds.length; i++){ // O(|sampleIds|)
+				int tmp = childIds[i];
+				repartition[tmp][c[tmp]] = sampleIds[i];
 				c[tmp]++;
 			}
 		}
@@ -142,4 +200,12 @@ public abstract class Splitter{
 	public int[] getVariableUsedToSplit(){
 		return varUsedInSplit;
 	}
+	
+	/**
+	 * @return the rule used to send samples to the children of the node
+	 * @pre <code>findBestSplit()</code> was previously called on the current object
+	 */
+	public UnivariateSplit getSplit(){
+		return howToSplit;
+	}
 }
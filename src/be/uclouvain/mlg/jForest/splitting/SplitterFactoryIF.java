@@ -0,0 +1,50 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.splitting;
+
+/**
+ * Creates the splitters used to grow trees.
+ * A splitter is reused for all the nodes of the trees grown by one thread: <code>init(Tree tree)</code> resets it for each node,
+ * while its configuration and its buffers are kept.
+ * A splitter is thus not thread safe, a thread growing trees asks its own one to the factory.
+ * <p>
+ * Every {@link Splitter} is a factory of splitters configured as itself, so a configured splitter can be passed as a prototype
+ * (<i>e.g.</i> <code>new ExtraTreesSplitter(new EntropyImpurity(), 4)</code>).
+ * {@link ReflectiveSplitterFactory} creates splitters from their class with the default constructor.
+ * </p>
+ */
+public interface SplitterFactoryIF {
+
+	/**
+	 * @return a new splitter, with its own buffers
+	 */
+	public Splitter newSplitter();
+
+}
@@ -0,0 +1,119 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.splitting;
+
+import java.util.Random;
+
+import be.uclouvain.mlg.jForest.splitting.index.ImpurityIF;
+import be.uclouvain.mlg.jForest.tree.Tree;
+
+/**
+ * CART like splits where the variable and the threshold of a large node are chosen on a random subset of its samples.
+ * Nodes of more than <code>maxRows</code> samples are searched on <code>maxRows</code> of them, drawn without replacement,
+ * then the split is applied to all the samples of the node by <code>getRepartition()</code>.
+ * The cost of the search is thus bounded at the top of the trees, where the nodes are the largest.
+ * <p>
+ * The split and its importance index (the drop in Gini) are estimated on the subset, so they may differ from the ones of {@link CARTSplitter}.
+ * Nodes of at most <code>maxRows</code> samples are split exactly as in <code>CARTSplitter</code>.
+ * The subsets are drawn with the random generator of the sampler of the candidate variables.
+ * </p>
+ */
+public class SubsampledCARTSplitter extends CARTSplitter {
+
+	private final int maxRows;
+	private Random rnd;
+	private boolean subsampled = false;
+	private int[] pool = new int[0];
+
+	/**
+	 * @param impurity the impurity measure whose drop scores the splits
+	 * @param maxRows the maximal number of samples on which a split is searched, at least 2 (<i>e.g.</i> 5000)
+	 */
+	public SubsampledCARTSplitter(ImpurityIF impurity, int maxRows){
+		super(impurity);
+		this.maxRows = checkMaxRows(maxRows);
+	}
+
+	@Override
+	public Splitter newSplitter() {
+		return new SubsampledCARTSplitter(impurity, maxRows);
+	}
+
+	private static int checkMaxRows(int rows){
+		if(rows < 2) throw new RuntimeException("The number of samples to search a split on must be at least 2, not "+rows+".");
+		return rows;
+	}
+
+	@Override
+	public void init(Tree tree) {
+		super.init(tree);
+		rnd = tree.getMtrySampler().getRandom();
+	}
+
+	@Override
+	protected int searchBestSplit() {
+		if(sampleIds.length <= maxRows) return super.searchBestSplit();
+
+		int[] all = sampleIds;
+		sampleIds = subsample(all, maxRows);
+		subsampled = true;
+		try{
+			return super.searchBestSplit();
+		}
+		finally{
+			sampleIds = all;
+			subsampled = false;
+		}
+	}
+
+	/**
+	 * A variable constant on the subset may not be constant on the node, so it is only recorded when the node is searched exactly.
+	 */
+	@Override
+	protected void markConstant(int f) {
+		if(!subsampled) super.markConstant(f);
+	}
+
+	/**
+	 * Draws <code>size</code> positions of <code>ids</code> without replacement (partial Fisher-Yates shuffle).
+	 * Repeated samples of a bootstrap are different positions, so they may be drawn several times.
+	 */
+	private int[] subsample(int[] ids, int size){
+		if(pool.length < ids.length) pool = new int[ids.length];
+		System.arraycopy(ids, 0, pool, 0, ids.length);
+		int[] res = new int[size];
+		for(int i = 0; i < size; i++){
+			int j = i + rnd.nextInt(ids.length - i);
+			res[i] = pool[j];
+			pool[j] = pool[i];
+		}
+		return res;
+	}
+}
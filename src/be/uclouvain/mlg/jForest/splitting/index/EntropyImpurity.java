@@ -0,0 +1,117 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.splitting.index;
+
+/**
+ * The entropy of the class distribution (in bits), whose drop is the information gain of a split (as in ID3 and C4.5).
+ * <p>
+ * The entropy of counts <i>c<sub>k</sub></i> summing to <i>n</i> is <i>(n log n - &Sigma; c<sub>k</sub> log c<sub>k</sub>) / n</i>,
+ * so it only needs <i>x log x</i> for integers <i>x</i> &le; <i>n</i>.
+ * These are read in a table shared by all the instances, grown on demand up to 2<sup>22</sup> entries,
+ * hence evaluating a split does not call <code>Math.log</code> (except for counts beyond the table).
+ * </p>
+ */
+public final class EntropyImpurity implements ImpurityIF {
+
+	private static final double INV_LN2 = 1 / Math.log(2);
+	private static final int MAX_TABLE_SIZE = 1 << 22;
+
+	private static volatile double[] nLogN = computeTable(1 << 12);
+
+	private static double[] computeTable(int size){
+		double[] res = new double[size];
+		for(int k = 1; k < size; k++) res[k] = k * Math.log(k) * INV_LN2; // 0 log 0 = 0
+		return res;
+	}
+
+	/**
+	 * Grows the table so that it covers the counts of a node of <code>n</code> samples (if allowed by its maximal size)
+	 * @return the current table
+	 */
+	private static double[] getTable(int n){
+		double[] table = nLogN;
+		if(n < table.length || table.length == MAX_TABLE_SIZE) return table;
+		synchronized(EntropyImpurity.class){
+			if(n >= nLogN.length) nLogN = computeTable((int) Math.min(MAX_TABLE_SIZE, Integer.highestOneBit(n) * 2L));
+			return nLogN;
+		}
+	}
+
+	private static double xLogX(double[] table, int x){
+		return (x < table.length) ? table[x] : x * Math.log(x) * INV_LN2;
+	}
+
+	@Override
+	public double getImpurity(int[] counts, int offset, int tot, int nClasses) {
+		if(tot == 0) return 0;
+		double[] table = getTable(tot);
+		double res = xLogX(table, tot);
+		for(int c = 0; c < nClasses; c++) res -= xLogX(table, counts[offset + c]);
+		return res / tot;
+	}
+
+	@Override
+	public double getDrop(double impCur, int[] curCounts, int nCur, int[] leftCounts, int nLeft, int nClasses) {
+		int nRight = nCur - nLeft;
+		if(nLeft == 0 || nRight == 0) return 0; // There is no split... The data remains the same
+		double[] table = getTable(nCur);
+		// nLeft * entropy(left) + nRight * entropy(right)
+		double children = xLogX(table, nLeft) + xLogX(table, nRight);
+		for(int c = 0; c < nClasses; c++){
+			int left = leftCounts[c];
+			children -= xLogX(table, left) + xLogX(table, curCounts[c] - left);
+		}
+		return impCur - children / nCur;
+	}
+
+	@Override
+	public void getDrops(int[] curCounts, int nCur, int[] leftCounts, int[] nLeft, int nSplits, int nClasses, double[] drops) {
+		double[] table = getTable(nCur);
+		double impCur = getImpurity(curCounts, 0, nCur, nClasses);
+		for(int j = 0; j < nSplits; j++){
+			int nL = nLeft[j], nR = nCur - nL;
+			if(nL == 0 || nR == 0){
+				drops[j] = 0;
+				continue;
+			}
+			double children = xLogX(table, nL) + xLogX(table, nR);
+			for(int c = 0; c < nClasses; c++){
+				int left = leftCounts[j * nClasses + c];
+				children -= xLogX(table, left) + xLogX(table, curCounts[c] - left);
+			}
+			drops[j] = impCur - children / nCur;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "entropy";
+	}
+}
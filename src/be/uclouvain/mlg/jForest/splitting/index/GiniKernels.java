@@ -0,0 +1,217 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.splitting.index;
+
+/**
+ * Tight loops used by the splitters to count classes and to evaluate the Gini drop of many candidate splits at once.
+ * <p>
+ * Two implementations are provided, with exactly the same results (the floating point operations are done in the same order as in {@link Gini}):
+ * the blocked one processes the samples by blocks of 4 without branches and specializes the two-class case,
+ * so that the JIT compiler can keep the counts in registers and overlap the iterations;
+ * the scalar one is the straightforward loop, kept as a reference.
+ * The implementation is chosen at compile time by the constant <code>BLOCKED</code> (the blocked one by default).
+ * </p>
+ */
+public final class GiniKernels {
+
+	private static final boolean BLOCKED = true; // false for the scalar kernels
+
+	private GiniKernels(){}
+
+	/**
+	 * Computes the Gini index of class counts, as <code>Gini.getGini()</code>
+	 * @param counts the class counts, from offset <code>offset</code>
+	 * @param offset the index of the count of class 0
+	 * @param tot the sum of the counts
+	 * @param nClasses the number of classes
+	 * @return the Gini index
+	 */
+	public static double gini(int[] counts, int offset, int tot, int nClasses){
+		double res = 1;
+		for(int c = 0; c < nClasses; c++) res -= Math.pow(((double) counts[offset + c])/tot,2);
+		return res;
+	}
+
+	/**
+	 * Adds to <code>counts</code> the number of samples of each class whose value is lower than a threshold
+	 * (<i>i.e.</i> which go to the left child of a <code>ContinuousBinarySplit</code>).
+	 * @param values the values of the samples
+	 * @param labels the label of each sample
+	 * @param weights the number of times each sample is repeated, or <code>null</code> for once
+	 * @param m the number of samples
+	 * @param t the threshold
+	 * @param counts the class counts, from offset <code>offset</code>
+	 * @param offset the index of the count of class 0
+	 * @param nClasses the number of classes
+	 * @return the number of samples added
+	 */
+	public static int countLower(double[] values, int[] labels, int[] weights, int m, double t, int[] counts, int offset, int nClasses){
+		if(!BLOCKED){
+			int res = 0;
+			for(int e = 0; e < m; e++){
+				if(values[e] < t){
+					int w = (weights == null) ? 1 : weights[e];
+					counts[offset + labels[e]] += w;
+					res += w;
+				}
+			}
+			return res;
+		}
+
+		int e = 0, n0 = 0, n1 = 0, n2 = 0, n3 = 0;
+		if(nClasses == 2){ // the labels are 0 or 1: class 1 is counted as a sum of labels
+			int c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+			if(weights == null){
+				for(; e + 3 < m; e += 4){
+					int l0 = values[e] < t ? 1 : 0, l1 = values[e + 1] < t ? 1 : 0, l2 = values[e + 2] < t ? 1 : 0, l3 = values[e + 3] < t ? 1 : 0;
+					n0 += l0; n1 += l1; n2 += l2; n3 += l3;
+					c0 += l0 & labels[e]; c1 += l1 & labels[e + 1]; c2 += l2 & labels[e + 2]; c3 += l3 & labels[e + 3];
+				}
+				for(; e < m; e++){
+					int l = values[e] < t ? 1 : 0;
+					n0 += l;
+					c0 += l & labels[e];
+				}
+			}
+			else{
+				for(; e + 3 < m; e += 4){
+					int w0 = values[e] < t ? weights[e] : 0, w1 = values[e + 1] < t ? weights[e + 1] : 0;
+					int w2 = values[e + 2] < t ? weights[e + 2] : 0, w3 = values[e + 3] < t ? weights[e + 3] : 0;
+					n0 += w0; n1 += w1; n2 += w2; n3 += w3;
+					c0 += w0 * labels[e]; c1 += w1 * labels[e + 1]; c2 += w2 * labels[e + 2]; c3 += w3 * labels[e + 3];
+				}
+				for(; e < m; e++){
+					int w = values[e] < t ? weights[e] : 0;
+					n0 += w;
+					c0 += w * labels[e];
+				}
+			}
+			int n = n0 + n1 + n2 + n3, c = c0 + c1 + c2 + c3;
+			counts[offset] += n - c;
+			counts[offset + 1] += c;
+			return n;
+		}
+
+		// the count of the class of each sample is incremented by 0 or its weight, without branches
+		for(; e + 3 < m; e += 4){
+			int w0 = values[e] < t ? (weights == null ? 1 : weights[e]) : 0;
+			int w1 = values[e + 1] < t ? (weights == null ? 1 : weights[e + 1]) : 0;
+			int w2 = values[e + 2] < t ? (weights == null ? 1 : weights[e + 2]) : 0;
+			int w3 = values[e + 3] < t ? (weights == null ? 1 : weights[e + 3]) : 0;
+			counts[offset + labels[e]] += w0;
+			counts[offset + labels[e + 1]] += w1;
+			counts[offset + labels[e + 2]] += w2;
+			counts[offset + labels[e + 3]] += w3;
+			n0 += w0; n1 += w1; n2 += w2; n3 += w3;
+		}
+		for(; e < m; e++){
+			int w = values[e] < t ? (weights == null ? 1 : weights[e]) : 0;
+			counts[offset + labels[e]] += w;
+			n0 += w;
+		}
+		return n0 + n1 + n2 + n3;
+	}
+
+	/**
+	 * Computes the drop in Gini of a binary split, the Gini index of the node being already known.
+	 * The result is the same as the one of <code>Gini.getGiniDrop(Gini gCur, Gini gLeft, Gini gRight)</code>.
+	 * @param gCur the Gini index of the node (see <code>gini(int[] counts, int offset, int tot, int nClasses)</code>)
+	 * @param curCounts the class counts of the node
+	 * @param nCur the number of samples of the node
+	 * @param leftCounts the class counts of the left child
+	 * @param nLeft the number of samples of the left child
+	 * @param nClasses the number of classes
+	 * @return the drop in Gini
+	 */
+	public static double giniDrop(double gCur, int[] curCounts, int nCur, int[] leftCounts, int nLeft, int nClasses){
+		int nRight = nCur - nLeft;
+		if(nLeft == 0 || nRight == 0) return 0; // There is no split... The data remains the same
+		double gLeft = 1, gRight = 1;
+		if(BLOCKED && nClasses == 2){
+			int l0 = leftCounts[0], l1 = leftCounts[1];
+			gLeft = gLeft - Math.pow(((double) l0)/nLeft,2) - Math.pow(((double) l1)/nLeft,2);
+			gRight = gRight - Math.pow(((double) (curCounts[0] - l0))/nRight,2) - Math.pow(((double) (curCounts[1] - l1))/nRight,2);
+		}
+		else{
+			for(int c = 0; c < nClasses; c++){
+				int left = leftCounts[c];
+				gLeft -= Math.pow(((double) left)/nLeft,2);
+				gRight -= Math.pow(((double) (curCounts[c] - left))/nRight,2);
+			}
+		}
+		return gCur - ((double) nLeft)/nCur*gLeft - ((double) nRight)/nCur*gRight;
+	}
+
+	/**
+	 * Computes the drop in Gini of several binary splits of the same node.
+	 * The result for each split is the same as the one of <code>Gini.getGiniDrop(Gini gCur, Gini gLeft, Gini gRight)</code>.
+	 * @param curCounts the class counts of the node (from index 0)
+	 * @param nCur the number of samples of the node
+	 * @param leftCounts the class counts of the left child of each split: those of split <i>j</i> start at index <code>j * nClasses</code>
+	 * @param nLeft the number of samples of the left child of each split
+	 * @param nSplits the number of splits
+	 * @param nClasses the number of classes
+	 * @param drops receives the drop in Gini of each split
+	 */
+	public static void giniDrops(int[] curCounts, int nCur, int[] leftCounts, int[] nLeft, int nSplits, int nClasses, double[] drops){
+		double gCur = gini(curCounts, 0, nCur, nClasses);
+
+		if(!BLOCKED || nClasses != 2){
+			for(int j = 0; j < nSplits; j++){
+				int nL = nLeft[j], nR = nCur - nL;
+				if(nL == 0 || nR == 0){ // There is no split... The data remains the same
+					drops[j] = 0;
+					continue;
+				}
+				double gLeft = 1, gRight = 1;
+				for(int c = 0; c < nClasses; c++){
+					int left = leftCounts[j * nClasses + c];
+					gLeft -= Math.pow(((double) left)/nL,2);
+					gRight -= Math.pow(((double) (curCounts[c] - left))/nR,2);
+				}
+				drops[j] = gCur - ((double) nL)/nCur*gLeft - ((double) nR)/nCur*gRight;
+			}
+			return;
+		}
+
+		// two classes: the loop has no inner loop and no branch but the test of empty children
+		int cur0 = curCounts[0], cur1 = curCounts[1];
+		for(int j = 0; j < nSplits; j++){
+			int nL = nLeft[j], nR = nCur - nL;
+			int l0 = leftCounts[2 * j], l1 = leftCounts[2 * j + 1];
+			double pl0 = ((double) l0)/nL, pl1 = ((double) l1)/nL;
+			double pr0 = ((double) (cur0 - l0))/nR, pr1 = ((double) (cur1 - l1))/nR;
+			double gLeft = 1 - Math.pow(pl0,2) - Math.pow(pl1,2);
+			double gRight = 1 - Math.pow(pr0,2) - Math.pow(pr1,2);
+			double drop = gCur - ((double) nL)/nCur*gLeft - ((double) nR)/nCur*gRight;
+			drops[j] = (nL == 0 || nR == 0) ? 0 : drop;
+		}
+	}
+}
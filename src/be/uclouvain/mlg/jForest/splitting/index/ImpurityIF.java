@@ -0,0 +1,74 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.splitting.index;
+
+/**
+ * Impurity measure of the class counts of a node, whose drop between a node and its two children scores a binary split.
+ * <p>
+ * The splitters call these methods for each candidate threshold, so implementations should be final and stateless
+ * (or only read shared tables): with the few implementations of the library, the JIT compiler inlines the calls
+ * in the loops of the splitters.
+ * </p>
+ */
+public interface ImpurityIF {
+
+	/**
+	 * @param counts the class counts, from offset <code>offset</code>
+	 * @param offset the index of the count of class 0
+	 * @param tot the sum of the counts
+	 * @param nClasses the number of classes
+	 * @return the impurity of the class counts
+	 */
+	public double getImpurity(int[] counts, int offset, int tot, int nClasses);
+
+	/**
+	 * Computes the drop in impurity of a binary split, the impurity of the node being already known.
+	 * @param impCur the impurity of the node (see <code>getImpurity(int[] counts, int offset, int tot, int nClasses)</code>)
+	 * @param curCounts the class counts of the node
+	 * @param nCur the number of samples of the node
+	 * @param leftCounts the class counts of the left child (those of the right child are deduced)
+	 * @param nLeft the number of samples of the left child
+	 * @param nClasses the number of classes
+	 * @return the drop in impurity, 0 if a child is empty
+	 */
+	public double getDrop(double impCur, int[] curCounts, int nCur, int[] leftCounts, int nLeft, int nClasses);
+
+	/**
+	 * Computes the drop in impurity of several binary splits of the same node.
+	 * @param curCounts the class counts of the node (from index 0)
+	 * @param nCur the number of samples of the node
+	 * @param leftCounts the class counts of the left child of each split: those of split <i>j</i> start at index <code>j * nClasses</code>
+	 * @param nLeft the number of samples of the left child of each split
+	 * @param nSplits the number of splits
+	 * @param nClasses the number of classes
+	 * @param drops receives the drop in impurity of each split
+	 */
+	public void getDrops(int[] curCounts, int nCur, int[] leftCounts, int[] nLeft, int nSplits, int nClasses, double[] drops);
+}
@@ -31,14 +31,22 @@ package be.uclouvain.mlg.jForest.splitting.split;
 
 import java.util.Arrays;
 
+import be.uclouvain.mlg.jForest.data.Data;
+import be.uclouvain.mlg.jForest.data.LevelDictionary;
+
 /**
  * An instance of this class contains the splitting information
  * to separate instances into two child nodes
  * based two partitions of the values of a categorical variable (like CART trees)
+ * <p>
+ * The levels going to the left child are stored as a bitset over the codes of a {@link LevelDictionary},
+ * so that a sample is sent to its child in constant time whatever the number of levels.
+ * </p>
  */
 public class CategoricalBinarySplit extends UnivariateSplit{
 
-	private double[] catLeft;
+	private final LevelDictionary levels;
+	private final long[] left;
 	
 	/**
 	 * Initializes a binary split on the categorical variable <code>var</code>.
@@ -48,8 +56,45 @@ public class CategoricalBinarySplit extends UnivariateSplit{
 	 *        The two child nodes respectively contain instances with <code>x[var] in catLeft</code> and <code>x[var] not in catLeft</code>.
 	 */
 	public CategoricalBinarySplit(int var, double index, double[] catLeft){
+		this(var, index, new LevelDictionary(distinct(catLeft)), allCodes(distinct(catLeft).length));
+	}
+	
+	/**
+	 * Initializes a binary split on the categorical variable <code>var</code> from the codes of its levels.
+     * @param var the column index of the variable in the full dataset
+     * @param index the value of the metric optimized by the split (<i>e.g.</i> Gini)
+	 * @param levels the levels of feature <code>var</code> in the training data (see <code>Data.getLevelDictionary(int feat)</code>)
+	 * @param left the bitset of the codes going to the left child: code <i>c</i> goes to the left iff bit <code>c % 64</code> of <code>left[c / 64]</code> is set.
+	 *        Values which are not levels of <code>levels</code> go to the right child.
+	 */
+	public CategoricalBinarySplit(int var, double index, LevelDictionary levels, long[] left){
 		super(var,index);
-		this.catLeft = catLeft;
+		this.levels = levels;
+		this.left = left;
+	}
+	
+	private static double[] distinct(double[] values){
+		double[] res = values.clone();
+		Arrays.sort(res);
+		int k = 0;
+		for(int i = 0; i < res.length; i++){
+			if(i == 0 || res[i] != res[k - 1]) res[k++] = res[i];
+		}
+		return Arrays.copyOf(res, k);
+	}
+	
+	private static long[] allCodes(int nLevels){
+		long[] res = new long[(nLevels + 63) / 64];
+		for(int c = 0; c < nLevels; c++) res[c >>> 6] |= 1L << c;
+		return res;
+	}
+	
+	/**
+	 * @param code the code of a level
+	 * @return <code>true</code> iff the level goes to the left child
+	 */
+	private boolean isLeft(int code){
+		return code >= 0 && (left[code >>> 6] & (1L << code)) != 0;
 	}
 	
 	@Override
@@ -59,15 +104,32 @@ public class CategoricalBinarySplit extends UnivariateSplit{
 	
 	@Override
 	public int getChildIdFor(double value) {
-		for(double d : catLeft){
-			if(value == d) return 0;
-		}
-		return 1;
+		return isLeft(levels.getCode(value)) ? 0 : 1;
 	}
 	
+	/**
+	 * When <code>d</code> is the training data, the code of the sample is read directly from <code>d.getCatCodes(var)</code>.
+	 */
+	@Override
+	public int getChildIdFor(Data d, int sample) {
+		if(d.getLevelDictionary(getVarId()) != levels) return super.getChildIdFor(d, sample);
+		return isLeft(d.getCatCodes(getVarId())[sample]) ? 0 : 1;
+	}
+	
+	/**
+	 * @return the levels going to the left child
+	 */
+	public double[] getCatLeft(){
+		double[] res = new double[levels.size()];
+		int k = 0;
+		for(int c = 0; c < levels.size(); c++){
+			if(isLeft(c)) res[k++] = levels.getLevel(c);
+		}
+		return Arrays.copyOf(res, k);
+	}
 
 	@Override
 	public String toString() {
-		return "Split on cat var "+getVarId()+" with categories going to left "+Arrays.toString(catLeft)+" and index "+getIndex();
+		return "Split on cat var "+getVarId()+" with categories going to left "+Arrays.toString(getCatLeft())+" and index "+getIndex();
 	}
 }
@@ -29,6 +29,8 @@ along with jForest.  If not, see <http://www.gnu.org/licenses/>.
 
 package be.uclouvain.mlg.jForest.splitting.split;
 
+import be.uclouvain.mlg.jForest.data.Data;
+
 /**
  * An instance of this class is used in each node to stock the splitting information
  * <i>i.e.</i> the rule to classify new samples and the value of the metric optimized while training (<i>e.g.</i> gini).  
@@ -62,6 +64,16 @@ public abstract class UnivariateSplit {
 	 */
 	public abstract int getChildIdFor(double v);
 	
+	/**
+	 * Computes in which child node a sample of a data set falls into, reading only the value of the feature of interest.
+	 * @param d a data set with the same variables as the training data
+	 * @param sample the index of the sample in <code>d</code>
+	 * @return the index in <code>[0 ; this.getNbChildren()[</code> of the child in which the sample falls into
+	 */
+	public int getChildIdFor(Data d, int sample){
+		return getChildIdFor(d.getValue(sample, var));
+	}
+	
 	/**
 	 * @param index the value of the metric optimized by the split (<i>e.g.</i> Gini)
 	 */
@@ -37,6 +37,7 @@ package be.uclouvain.mlg.jForest.splitting.tools;
 public class CatCount implements Comparable<CatCount> {
 
 	private double level;
+	private int code = -1;
 	private int n0 = 0, n1 = 0, c0, c1;
 	
 	/**
@@ -51,6 +52,18 @@ public class CatCount implements Comparable<CatCount> {
 		this.level = level;
 	}
 	
+	/**
+	 * @param code the code of the level of interest (see <code>Data.getLevelDictionary(int feat)</code>)
+	 * @param level the level of interest of the categorical variable 
+	 * @param c0 the label of one class
+	 * @param c1 the label of the other class
+	 * @pre   the classification problem should involve only two classes
+	 */
+	public CatCount(int code, double level, int c0, int c1){
+		this(level, c0, c1);
+		this.code = code;
+	}
+	
 	/**
 	 * Increments the count of one class.
 	 * Each time the variables takes value <code>level</code> this methods should be called
@@ -62,6 +75,16 @@ public class CatCount implements Comparable<CatCount> {
 		else n1++;
 	}
 
+	/**
+	 * Increments the count of one class several times.
+	 * @param label either <code>c0</code> or <code>c1</code>
+	 * @param nTimes the number of samples of class <code>label</code> taking value <code>level</code>
+	 */
+	public void add(int label, int nTimes){
+		if(label == c0) n0 += nTimes;
+		else n1 += nTimes;
+	}
+
 	/**
 	 * Computes the class probability of <code>c0</code> based on the observed classes.
 	 * @return the class probability of <code>c0</code> or 0 if <code>add(int label)</code> has not been called.
@@ -78,6 +101,13 @@ public class CatCount implements Comparable<CatCount> {
 		return level;
 	}
 	
+	/**
+	 * @return the code of the level of interest, or -1 if it was not given
+	 */
+	public int getCode(){
+		return code;
+	}
+	
 	/**
 	 * @return the label of one class
 	 */
@@ -0,0 +1,131 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.splitting.tools;
+
+import be.uclouvain.mlg.jForest.splitting.index.ImpurityIF;
+import be.uclouvain.mlg.jForest.splitting.split.ContinuousBinarySplit;
+import be.uclouvain.mlg.jForest.splitting.split.UnivariateSplit;
+
+/**
+ * Finds the best threshold of a continuous variable by visiting its distinct values in increasing order,
+ * each value coming with the class counts of the samples having it.
+ * The split is the same as the one of the sample by sample sweep of <code>CARTSplitter</code>:
+ * the boundaries between two samples with the same value have a null drop in impurity,
+ * which is only kept when no split was found yet.
+ * <p>
+ * Usage: for each distinct value, call <code>nextGroup(double v)</code> then <code>add(int label, int w)</code> for its samples,
+ * and finally <code>finish()</code>.
+ * </p>
+ */
+public final class GroupSweep {
+
+	private final int f;
+	private final int[] curCounts;
+	private final int nCur, nClasses;
+	private final ImpurityIF impurity;
+	private final double impCur;
+	private final int[] left;
+	private int nLeft = 0, groupSize = 0;
+	private double prev;
+	private boolean started = false, constant = true;
+	private UnivariateSplit res;
+
+	/**
+	 * @param f the variable
+	 * @param res the best split found so far (<i>e.g.</i> one with an index of <code>Double.NEGATIVE_INFINITY</code>)
+	 * @param impurity the impurity measure whose drop scores the thresholds
+	 * @param curCounts the class counts of the node
+	 * @param nCur the number of samples of the node
+	 * @param nClasses the number of classes
+	 */
+	public GroupSweep(int f, UnivariateSplit res, ImpurityIF impurity, int[] curCounts, int nCur, int nClasses){
+		this.f = f;
+		this.res = res;
+		this.curCounts = curCounts;
+		this.nCur = nCur;
+		this.nClasses = nClasses;
+		this.impurity = impurity;
+		this.impCur = impurity.getImpurity(curCounts, 0, nCur, nClasses);
+		this.left = new int[nClasses];
+	}
+
+	/**
+	 * Evaluates the threshold between the previous value and <code>v</code>, then starts the group of value <code>v</code>.
+	 * @param v the next distinct value, greater than the previous one
+	 */
+	public void nextGroup(double v){
+		if(started){
+			closeGroup();
+			if(prev == v){ // -0.0 then 0.0, which are the same value for the splits
+				if(0 > res.getIndex()) res = new ContinuousBinarySplit(f, 0, (prev + v) / 2);
+			}
+			else{
+				constant = false;
+				double tmp = impurity.getDrop(impCur, curCounts, nCur, left, nLeft, nClasses);
+				if(tmp > res.getIndex()){
+					res = new ContinuousBinarySplit(f, tmp, (prev + v) / 2);
+				}
+			}
+		}
+		prev = v;
+		groupSize = 0;
+		started = true;
+	}
+
+	/**
+	 * Adds samples to the current group
+	 * @param label the class of the samples
+	 * @param w the number of samples
+	 */
+	public void add(int label, int w){
+		left[label] += w;
+		nLeft += w;
+		groupSize += w;
+	}
+
+	private void closeGroup(){
+		if(groupSize > 1 && 0 > res.getIndex()) res = new ContinuousBinarySplit(f, 0, (prev + prev) / 2);
+	}
+
+	/**
+	 * @return <code>true</code> if all the groups visited so far have the same value
+	 */
+	public boolean isConstant(){
+		return constant;
+	}
+
+	/**
+	 * @return the best split among the one given to the constructor and the thresholds of the variable
+	 */
+	public UnivariateSplit finish(){
+		if(started) closeGroup();
+		return res;
+	}
+}
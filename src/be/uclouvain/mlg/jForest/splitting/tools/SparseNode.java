@@ -0,0 +1,205 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.splitting.tools;
+
+import java.util.Arrays;
+
+import be.uclouvain.mlg.jForest.data.SparseData;
+import be.uclouvain.mlg.jForest.splitting.split.UnivariateSplit;
+
+/**
+ * The samples of a node grown on a {@link SparseData}, indexed so that the non-zero values of a variable in the node
+ * are extracted in <i>O(min(nnz, m * log(nnz)))</i>, where <i>nnz</i> is the number of non-zero values of the variable
+ * and <i>m</i> the number of distinct samples of the node.
+ * The samples which are not extracted have value 0 and are handled as one block by the splitters.
+ * <p>
+ * The multiplicity of the samples (a bootstrap sample contains repetitions) is kept in an array of size <i>n</i> per thread,
+ * so <code>release()</code> must be called once the node is split.
+ * </p>
+ */
+public class SparseNode {
+
+	private static final ThreadLocal<int[]> MULTIPLICITY = new ThreadLocal<int[]>();
+
+	private final SparseData d;
+	private final int[] rows;
+	private final int[] multiplicity;
+	private final int[] classCounts;
+	private final int nbSamples;
+
+	private int size;
+	private final int[] entryPos;
+	private final int[] entryRow;
+
+	/**
+	 * @param d the data set
+	 * @param sampleIds the samples of the node (with repetitions)
+	 */
+	public SparseNode(SparseData d, int[] sampleIds){
+		this.d = d;
+		this.nbSamples = sampleIds.length;
+		int[] mult = MULTIPLICITY.get();
+		if(mult == null || mult.length < d.getN()){
+			mult = new int[d.getN()];
+			MULTIPLICITY.set(mult);
+		}
+		this.multiplicity = mult;
+
+		int[] labels = d.getLabels();
+		classCounts = new int[d.getNumberOfClasses()];
+		int[] tmp = new int[sampleIds.length];
+		int nDistinct = 0;
+		for(int i : sampleIds){
+			if(mult[i]++ == 0) tmp[nDistinct++] = i;
+			classCounts[labels[i]]++;
+		}
+		rows = Arrays.copyOf(tmp, nDistinct);
+		Arrays.sort(rows);
+
+		entryPos = new int[nDistinct];
+		entryRow = new int[nDistinct];
+	}
+
+	/**
+	 * @return the number of samples of each class in the node (counting repetitions)
+	 */
+	public int[] getClassCounts(){
+		return classCounts;
+	}
+
+	/**
+	 * @return the number of samples of the node (counting repetitions)
+	 */
+	public int getNbSamples(){
+		return nbSamples;
+	}
+
+	/**
+	 * Finds the non-zero values of a variable for the samples of the node.
+	 * Their positions are then given by <code>getPos(int k)</code> for <i>k</i> in <i>[0 ; size[</i>, by increasing sample index.
+	 * A previous extraction is overwritten.
+	 * @param feat the index of a variable
+	 * @return the number <i>size</i> of distinct samples of the node with a non-zero value
+	 */
+	public int extract(int feat){
+		int[] colPtr = d.getColPtr();
+		int[] rowIds = d.getRowIds();
+		double[] values = d.getNonZeroValues();
+		int start = colPtr[feat], end = colPtr[feat + 1], nnz = end - start;
+		size = 0;
+
+		if(nnz <= (long) rows.length * (32 - Integer.numberOfLeadingZeros(nnz))){ // scan the column
+			for(int k = start; k < end; k++){
+				int r = rowIds[k];
+				if(multiplicity[r] > 0 && values[k] != 0) add(k, r);
+			}
+		}
+		else{ // search each sample of the node, the lower bound moves forward since both are sorted
+			int lo = start;
+			for(int r : rows){
+				int k = Arrays.binarySearch(rowIds, lo, end, r);
+				if(k >= 0){
+					if(values[k] != 0) add(k, r);
+					lo = k + 1;
+				}
+				else lo = -k - 1;
+				if(lo == end) break;
+			}
+		}
+		return size;
+	}
+
+	private void add(int pos, int row){
+		entryPos[size] = pos;
+		entryRow[size] = row;
+		size++;
+	}
+
+	/**
+	 * @param k the index of an extracted value in <i>[0 ; size[</i>
+	 * @return its position in the arrays of the data (see <code>SparseData.getColPtr()</code>)
+	 */
+	public int getPos(int k){
+		return entryPos[k];
+	}
+
+	/**
+	 * @param k the index of an extracted value in <i>[0 ; size[</i>
+	 * @return the index of the sample it belongs to
+	 */
+	public int getRow(int k){
+		return entryRow[k];
+	}
+
+	/**
+	 * @param k the index of an extracted value in <i>[0 ; size[</i>
+	 * @return the number of times its sample appears in the node
+	 */
+	public int getMultiplicity(int k){
+		return multiplicity[entryRow[k]];
+	}
+
+	/**
+	 * Counts the samples of each class whose value was not extracted (<i>i.e.</i> is 0).
+	 * @param labels the labels of the data
+	 * @return the class counts of the zero block
+	 * @pre <code>extract(int feat)</code> was called
+	 */
+	public int[] getZeroClassCounts(int[] labels){
+		int[] res = classCounts.clone();
+		for(int k = 0; k < size; k++) res[labels[entryRow[k]]] -= multiplicity[entryRow[k]];
+		return res;
+	}
+
+	/**
+	 * Applies a split to the samples of the node, reading only the non-zero values of its variable.
+	 * @param split the split of the node
+	 * @param sampleIds the samples of the node (with repetitions), as passed to the constructor
+	 * @return <code>res[i]</code> is the index of the child in which <code>sampleIds[i]</code> falls into
+	 */
+	public int[] getChildIds(UnivariateSplit split, int[] sampleIds){
+		double[] values = d.getNonZeroValues();
+		int m = extract(split.getVarId());
+		int zeroChild = split.getChildIdFor(0.0);
+		int[] res = new int[sampleIds.length];
+		for(int i = 0; i < sampleIds.length; i++){
+			int k = Arrays.binarySearch(entryRow, 0, m, sampleIds[i]);
+			res[i] = (k < 0) ? zeroChild : split.getChildIdFor(values[entryPos[k]]);
+		}
+		return res;
+	}
+
+	/**
+	 * Resets the multiplicity of the samples of the node in the array of the current thread.
+	 */
+	public void release(){
+		for(int r : rows) multiplicity[r] = 0;
+	}
+}
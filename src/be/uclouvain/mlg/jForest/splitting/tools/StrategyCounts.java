@@ -0,0 +1,72 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.splitting.tools;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of the number of times each strategy of a splitter is used (see {@link be.uclouvain.mlg.jForest.splitting.HybridCARTSplitter}).
+ * A splitter shares its counters with the splitters it creates, so that they count for the whole forest
+ * even if the trees are grown by several threads.
+ */
+public final class StrategyCounts {
+
+	private final AtomicLongArray counts;
+
+	/**
+	 * @param nStrategies the number of strategies, numbered from 0
+	 */
+	public StrategyCounts(int nStrategies){
+		counts = new AtomicLongArray(nStrategies);
+	}
+
+	/**
+	 * @param s a strategy
+	 */
+	public void increment(int s){
+		counts.incrementAndGet(s);
+	}
+
+	/**
+	 * @return <code>res[s]</code> is the number of times strategy <i>s</i> was used since the creation of the counters or the last call to <code>reset()</code>
+	 */
+	public long[] getCounts(){
+		long[] res = new long[counts.length()];
+		for(int s = 0; s < res.length; s++) res[s] = counts.get(s);
+		return res;
+	}
+
+	/**
+	 * Sets the counters to 0.
+	 */
+	public void reset(){
+		for(int s = 0; s < counts.length(); s++) counts.set(s, 0);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+jForest
+Copyright © 2010-2015, Université catholique de Louvain, Belgium - UCL
+All rights reserved.
+
+This file is part of the jForest library.
+
+jForest has been developed by Jérôme Paul
+(Machine Learning Group (MLG) - Institute of Information and Communication
+Technologies, Electronics and Applied Mathematics (ICTEAM)) for the
+Université catholique de Louvain (UCL). jForest is a general framework for
+Machine Learning. It implements tree ensemble based classification methods.
+It is designed to be very modular and allows easy tuning and modification of
+the tree induction, classification criterion and feature importance index.
+
+jForest is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+any later version.
+
+jForest is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with jForest.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package be.uclouvain.mlg.jForest.tools;
+
+/**
+ * Helper that splits a range of indices <i>[0 ; n[</i> into contiguous blocks processed by several threads.
+ */
+public final class Parallel {
+
+	/**
+	 * A task applied on a contiguous block of indices.
+	 * Each block is processed by a single thread, so an implementation can allocate its scratch buffers once per call.
+	 */
+	public interface Block {
+		/**
+		 * @param from the first index of the block (inclusive)
+		 * @param to the last index of the block (exclusive)
+		 */
+		public void run(int from, int to);
+	}
+
+	private Parallel(){}
+
+	/**
+	 * @return the number of processors available to the JVM
+	 */
+	public static int getDefaultNbThreads(){
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Runs <code>task</code> on <code>nThreads</code> blocks of <i>[0 ; n[</i> and waits for all of them to finish.
+	 * @param n the number of indices
+	 * @param nThreads the number of threads. With 1 thread, the task runs in the calling thread.
+	 * @param task the task to apply on each block
+	 */
+	public static void forEachBlock(int n, int nThreads, final Block task){
+		nThreads = Math.max(1, Math.min(nThreads, n));
+		if(nThreads == 1){
+			task.run(0, n);
+			return;
+		}
+
+		final Throwable[] errors = new Throwable[nThreads];
+		Thread[] threads = new Thread[nThreads];
+		int blockSize = n / nThreads, remainder = n % nThreads, from = 0;
+		for(int t = 0; t < nThreads; t++){
+			final int id = t, start = from, end = from + blockSize + (t < remainder ? 1 : 0);
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try{
+						task.run(start, end);
+					}catch(Throwable e){
+						errors[id] = e;
+					}
+				}
+			});
+			threads[t].start();
+			from = end;
+		}
+
+		for(Thread t : threads){
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+
+		for(Throwable e : errors){
+			if(e instanceof RuntimeException) throw (RuntimeException) e;
+			if(e instanceof Error) throw (Error) e;
+			if(e != null) throw new RuntimeException(e);
+		}
+	}
+}
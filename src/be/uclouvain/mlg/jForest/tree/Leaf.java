@@ -29,7 +29,8 @@ along with jForest.  If not, see <http://www.gnu.org/licenses/>.
 
 package be.uclouvain.mlg.jForest.tree;
 
-import java.util.Arrays;
+import be.uclouvain.mlg.jForest.data.Data;
+import be.uclouvain.mlg.jForest.sampler.SeededSample;
 
 /**
  * Generic definition of a leaf of a decision tree
@@ -37,12 +38,19 @@ import java.util.Arrays;
 public class Leaf implements TreeIF {
 	
 	private int classToPredict;
-	private int[] inTree, oob;
+	private final SeededSample sample;
+	private final int nSamples;
+	private int leafId = -1;
 	
-	public Leaf(int[] inTree, int[] oob, int classToPredict){
+	/**
+	 * @param nSamples the number of training samples that reach this leaf
+	 * @param sample the sample of the whole tree this leaf belongs to, from which its out-of-bag indices are regenerated
+	 * @param classToPredict the class label predicted by this leaf
+	 */
+	public Leaf(int nSamples, SeededSample sample, int classToPredict){
 		this.classToPredict = classToPredict;
-		this.inTree = inTree;
-		this.oob = oob;
+		this.sample = sample;
+		this.nSamples = nSamples;
 	}
 	
 	@Override
@@ -53,14 +61,37 @@ public class Leaf implements TreeIF {
 		return classToPredict;
 	}
 
+	@Override
+	public Leaf getLeaf(double[] x) {
+		return this;
+	}
+	
+	@Override
+	public Leaf getLeaf(Data d, int sample) {
+		return this;
+	}
+	
+	@Override
+	public int numberLeaves(int firstId) {
+		leafId = firstId;
+		return firstId + 1;
+	}
+	
+	/**
+	 * @return the id of this leaf in its tree, in <i>[0 ; number of leaves[</i>, or -1 if the leaves of the tree have not been numbered
+	 */
+	public int getLeafId() {
+		return leafId;
+	}
+	
 	@Override
 	public String toString(){
-		return "Leaf : samples = "+Arrays.toString(inTree)+", class = "+classToPredict+"\n\n";
+		return "Leaf : samples = "+nSamples+", class = "+classToPredict+"\n\n";
 	}
 
 	@Override
 	public int[] getOob() {
-		return oob;
+		return sample.getOob();
 	}
 
 	@Override
@@ -68,4 +99,16 @@ public class Leaf implements TreeIF {
 		return 0;
 	}
 	
+	@Override
+	public int getNbSamples() {
+		return nSamples;
+	}
+	
+	/**
+	 * @return the class label predicted by this leaf
+	 */
+	public int getClassToPredict() {
+		return classToPredict;
+	}
+	
 }
@@ -29,12 +29,13 @@ along with jForest.  If not, see <http://www.gnu.org/licenses/>.
 
 package be.uclouvain.mlg.jForest.tree;
 
-import java.util.Arrays;
-
 import be.uclouvain.mlg.jForest.data.Data;
 import be.uclouvain.mlg.jForest.importance.internal.InternalImportanceIF;
 import be.uclouvain.mlg.jForest.sampler.RandomSampler;
+import be.uclouvain.mlg.jForest.sampler.SeededSample;
+import be.uclouvain.mlg.jForest.splitting.ReflectiveSplitterFactory;
 import be.uclouvain.mlg.jForest.splitting.Splitter;
+import be.uclouvain.mlg.jForest.splitting.split.UnivariateSplit;
 
 /**
  * Generic definition of a decision tree
@@ -43,21 +44,28 @@ public class Tree implements TreeIF{
 	
 	private Data d;
 	private TreeIF[] subTrees;
-	private int[] inTree, oob, mtryVars;
+	private int[] inTree, mtryVars;
+	private SeededSample sample;
 	private RandomSampler mtrySampler;
-	private Class<Splitter> splittingCriterionClass;
 	private Splitter splittingCriterion;
+	private UnivariateSplit split;
 	private InternalImportanceIF inImpOfForest;
 	private InternalImportanceIF varCount;
 	private final int maxDepth;
+	private final int nSamples;
+	private int nLeaves;
+	private boolean[] constantVars;
+	private final boolean skipConstantVars;
 	
 	/**
-	 * Initializes a tree object with the following parameters 
+	 * Initializes a tree object whose nodes are split by a new splitter of class <code>splittingCriterionClass</code>
+	 * (see <code>Tree(RandomSampler mtrySampler, Splitter splitter, ...)</code>)
 	 * @param mtrySampler a sampler used to randomly choose the candidate variables in each split
 	 * @param splittingCriterionClass the class according to which splits are decided
 	 * @param d the full dataset on which the ensemble is grown
-	 * @param inTree the indices of the samples of <code>d</code> from which this tree is grown
-	 * @param oob the indices of the samples of <code>d</code> that are not used to grow this tree
+	 * @param inTree the indices of the samples of <code>d</code> from which this tree is grown.
+	 *               They are only kept until the tree is grown.
+	 * @param sample the sample of the whole tree this node belongs to, from which its out-of-bag indices are regenerated
 	 * @param inImpOfForest an aggregator of variable importance, computed from the splitting criteria.
 	 *                      This object should be common to all trees in the ensemble.
 	 * @param variableCount an object that records the number of times variables are used for splitting in the current tree.
@@ -65,15 +73,46 @@ public class Tree implements TreeIF{
 	 * @param maxDepth the maximal depth of this tree. A negative value will cause to fully grow the tree.
 	 */
 	@SuppressWarnings({ "unchecked", "rawtypes" })
-	public Tree(RandomSampler mtrySampler, Class splittingCriterionClass, Data d, int[] inTree, int[] oob, InternalImportanceIF inImpOfForest, InternalImportanceIF variableCount, int maxDepth){
+	public Tree(RandomSampler mtrySampler, Class splittingCriterionClass, Data d, int[] inTree, SeededSample sample, InternalImportanceIF inImpOfForest, InternalImportanceIF variableCount, int maxDepth){
+		this(mtrySampler, new ReflectiveSplitterFactory(splittingCriterionClass).newSplitter(), d, inTree, sample, inImpOfForest, variableCount, maxDepth);
+	}
+	
+	/**
+	 * Initializes a tree object with the following parameters 
+	 * @param mtrySampler a sampler used to randomly choose the candidate variables in each split
+	 * @param splitter the object according to which splits are decided. It is reused for all the nodes of the tree,
+	 *                 and can be reused for other trees grown afterwards by the same thread.
+	 * @param d the full dataset on which the ensemble is grown
+	 * @param inTree the indices of the samples of <code>d</code> from which this tree is grown.
+	 *               They are only kept until the tree is grown.
+	 * @param sample the sample of the whole tree this node belongs to, from which its out-of-bag indices are regenerated
+	 * @param inImpOfForest an aggregator of variable importance, computed from the splitting criteria.
+	 *                      This object should be common to all trees in the ensemble.
+	 * @param variableCount an object that records the number of times variables are used for splitting in the current tree.
+	 *                      This object should be different for each tree.
+	 * @param maxDepth the maximal depth of this tree. A negative value will cause to fully grow the tree.
+	 */
+	public Tree(RandomSampler mtrySampler, Splitter splitter, Data d, int[] inTree, SeededSample sample, InternalImportanceIF inImpOfForest, InternalImportanceIF variableCount, int maxDepth){
+		this(mtrySampler, splitter, d, inTree, sample, inImpOfForest, variableCount, maxDepth, false);
+	}
+	
+	/**
+	 * Initializes a tree object as <code>Tree(RandomSampler mtrySampler, Splitter splitter, ...)</code>
+	 * and sets whether the variables found constant in a node are tracked, so that they are not drawn as candidates in its descendants.
+	 * Skipping them changes the random draws of the candidate variables, so the trees differ from the ones grown without tracking.
+	 * @param skipConstantVars <code>true</code> to skip the constant variables, which is faster, <code>false</code> (default) to draw the candidates among all the variables
+	 */
+	public Tree(RandomSampler mtrySampler, Splitter splitter, Data d, int[] inTree, SeededSample sample, InternalImportanceIF inImpOfForest, InternalImportanceIF variableCount, int maxDepth, boolean skipConstantVars){
 		this.d = d;
 		this.inTree = inTree;
-		this.oob = oob;
+		this.sample = sample;
 		this.mtrySampler = mtrySampler;
-		this.splittingCriterionClass = splittingCriterionClass;
+		this.splittingCriterion = splitter;
 		this.inImpOfForest = inImpOfForest;
 		this.varCount = variableCount;
 		this.maxDepth = maxDepth;
+		this.nSamples = inTree.length;
+		this.skipConstantVars = skipConstantVars;
 	}
 	
 	/**
@@ -84,17 +123,12 @@ public class Tree implements TreeIF{
 	 *     <li>maximal depth is reached.</li>
 	 * </ul>
 	 * In addition, the internal importance is updated in inImp object (see constructor).
+	 * The children are grown with the splitter of this node, once everything needed from its split is read.
+	 * Once grown, a node only keeps its split: the indices of its samples and its splitter are released.
 	 */
 	@Override
 	public void grow(){
-		mtryVars = mtrySampler.getSample(d.getColRange())[0];
-		
-		try {
-			splittingCriterion = splittingCriterionClass.newInstance();
-		} catch (InstantiationException | IllegalAccessException e) {
-			e.printStackTrace();
-		}
-		
+		mtryVars = mtrySampler.getSample(d.getColRange(), constantVars)[0];
 		
 		if(maxDepth == 0){ // create one leaf node to perform classification
 			subTrees = new TreeIF[1];
@@ -108,24 +142,32 @@ public class Tree implements TreeIF{
 		if(subTrees.length == 1){
 			// cannot split the data or maximal depth reached --> one leaf node
 			int[] majorityClasses = d.getMajorityClass(inTree);
-			subTrees[0] = new Leaf(inTree,oob,majorityClasses[mtrySampler.getRandom().nextInt(majorityClasses.length)]);
+			subTrees[0] = new Leaf(inTree.length,sample,majorityClasses[mtrySampler.getRandom().nextInt(majorityClasses.length)]);
 		}
 		else{
 			inImpOfForest.addImportanceOfSplit(splittingCriterion); // update the internal importance of variables for all the forest
 			varCount.addImportanceOfSplit(splittingCriterion); // update internal variable counts for the current tree only
 			
+			split = splittingCriterion.getSplit();
 			int[][] repartition = splittingCriterion.getRepartition();
+			boolean[] childConstantVars = skipConstantVars ? splittingCriterion.getConstantVars() : null; // constant in a node, constant in its children
 			
 			for(int i = 0; i < subTrees.length; i++){
 				if(d.getNumberOfClassesIn(repartition[i]) == 1){ // one class --> one leaf
-					subTrees[i] = new Leaf(repartition[i],oob,d.getLabels()[repartition[i][0]]);
+					subTrees[i] = new Leaf(repartition[i].length,sample,d.getLabels()[repartition[i][0]]);
 				}
 				else{
-					subTrees[i] = new Tree(mtrySampler, splittingCriterionClass, d, repartition[i], oob,inImpOfForest,varCount,maxDepth-1);
+					Tree child = new Tree(mtrySampler, splittingCriterion, d, repartition[i], sample,inImpOfForest,varCount,maxDepth-1,skipConstantVars);
+					child.constantVars = childConstantVars;
+					subTrees[i] = child;
 				}
 				subTrees[i].grow();
 			}
 		}
+		
+		inTree = null;
+		constantVars = null;
+		splittingCriterion = null;
 	}
 	
 	/**
@@ -135,7 +177,35 @@ public class Tree implements TreeIF{
 	@Override
 	public int predict(double[] x){
 		if(subTrees.length == 1) return subTrees[0].predict(x); // This happens when fixing a maximal depth
-		return subTrees[splittingCriterion.getChildIdFor(x)].predict(x);
+		return subTrees[split.getChildIdFor(x)].predict(x);
+	}
+	
+	@Override
+	public Leaf getLeaf(double[] x){
+		if(subTrees.length == 1) return subTrees[0].getLeaf(x);
+		return subTrees[split.getChildIdFor(x)].getLeaf(x);
+	}
+	
+	@Override
+	public Leaf getLeaf(Data d, int sample){
+		if(subTrees.length == 1) return subTrees[0].getLeaf(d, sample);
+		return subTrees[split.getChildIdFor(d, sample)].getLeaf(d, sample);
+	}
+	
+	@Override
+	public int numberLeaves(int firstId){
+		int next = firstId;
+		for(TreeIF t : subTrees) next = t.numberLeaves(next);
+		nLeaves = next - firstId;
+		return next;
+	}
+	
+	/**
+	 * @return the number of leaves of this tree
+	 * @pre the leaves are numbered (see <code>numberLeaves(int firstId)</code>)
+	 */
+	public int getNbLeaves(){
+		return nLeaves;
 	}
 	
 	/**
@@ -147,7 +217,19 @@ public class Tree implements TreeIF{
 	
 	@Override
 	public int[] getOob(){
-		return oob;
+		return sample.getOob();
+	}
+	
+	/**
+	 * @return the sample from which the tree this node belongs to is grown
+	 */
+	public SeededSample getSeededSample(){
+		return sample;
+	}
+	
+	@Override
+	public int getNbSamples() {
+		return nSamples;
 	}
 	
 	@Override
@@ -163,9 +245,8 @@ public class Tree implements TreeIF{
 	
 	@Override
 	public String toString(){
-		String res = "In tree : " + Arrays.toString(inTree) + "\n";
-		res += "OOB : "+Arrays.toString(getOob())+"\n"; 
-		res += "Splitting Criterion : "+splittingCriterion + "\n\n";
+		String res = "In tree : " + nSamples + " samples\n";
+		res += "Split : "+split + "\n\n";
 		for(TreeIF t : subTrees) res += t.toString();
 		return res;
 	}
@@ -179,6 +260,7 @@ public class Tree implements TreeIF{
 
 	/**
 	 * @return the indices of the samples used to grow this tree
+	 * @pre the tree is being grown
 	 */
 	public int[] getSampleIds() {
 		return inTree;
@@ -191,11 +273,37 @@ public class Tree implements TreeIF{
 		return mtryVars;
 	}
 	
+	/**
+	 * @return <code>res[f]</code> is <code>true</code> if variable <code>f</code> is known to be constant on the samples of this tree,
+	 *         or <code>null</code> if no variable is known to be constant (see the constructor)
+	 * @pre the tree is being grown
+	 */
+	public boolean[] getConstantVars() {
+		return constantVars;
+	}
+	
 	/**
 	 * @return the sampler object used to randomly select the candidate variables in each split
 	 */
 	public RandomSampler getMtrySampler() {
 		return mtrySampler;
 	}
+	
+	/**
+	 * @return the children of the root node of this tree.
+	 *         There is only one child if the samples could not be split (or if the maximal depth was reached).
+	 * @pre the tree is grown
+	 */
+	public TreeIF[] getSubTrees() {
+		return subTrees;
+	}
+	
+	/**
+	 * @return the split of the root node of this tree or <code>null</code> if this node has a single child
+	 * @pre the tree is grown
+	 */
+	public UnivariateSplit getSplit() {
+		return split;
+	}
 
 }
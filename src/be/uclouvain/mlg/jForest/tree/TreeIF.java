@@ -29,6 +29,8 @@ along with jForest.  If not, see <http://www.gnu.org/licenses/>.
 
 package be.uclouvain.mlg.jForest.tree;
 
+import be.uclouvain.mlg.jForest.data.Data;
+
 /**
  * Interface of a tree to be grown in the forest
  */
@@ -46,6 +48,30 @@ public interface TreeIF {
 	 */
 	public int predict(double[] x);
 	
+	/**
+	 * Sends a <i>p</i>-dimensional sample down to the leaf it falls into.
+	 * @param x the feature vector of a sample
+	 * @return the leaf reached by <code>x</code>
+	 */
+	public Leaf getLeaf(double[] x);
+	
+	/**
+	 * Sends a sample of a data set down to the leaf it falls into.
+	 * Only the values of the variables tested on its path are read, so that the row is never built (<i>e.g.</i> for sparse data).
+	 * @param d a data set with the same variables as the training data
+	 * @param sample the index of the sample in <code>d</code>
+	 * @return the leaf reached by the sample
+	 */
+	public Leaf getLeaf(Data d, int sample);
+	
+	/**
+	 * Numbers the leaves of the tree in depth-first order (children are visited by increasing child index).
+	 * @param firstId the id given to the first leaf
+	 * @return the id following the one of the last leaf
+	 * @pre the tree is grown
+	 */
+	public int numberLeaves(int firstId);
+	
 	
 	/**
 	 * Computes the depth of the tree.
@@ -59,8 +85,15 @@ public interface TreeIF {
 	 * The tree might be grown from a subset of the whole dataset.
 	 * The data points not used during the tree induction form the <i>out-of-bag (OOB)</i>.
 	 * This methods returns the indices of OOB samples in an array.
+	 * They may be regenerated at each call, so callers should keep the returned array instead of calling this method repeatedly.
 	 * @return the indices of the OOB samples.
 	 */
 	public int[] getOob();
 	
+	/**
+	 * The number of training samples (counting repetitions) that reached this node during the tree induction.
+	 * @return the number of training samples in this node
+	 */
+	public int getNbSamples();
+	
 }